@@ -0,0 +1,176 @@
+package you.thiago.commonhelpers;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+
+import you.thiago.imagehelper.ImageComponent;
+
+/**
+ * Bounded LRU cache of base64 encoded bitmaps, sized in bytes
+ *
+ * Entries are keyed by bitmap identity and generation id (changes whenever the
+ * pixels change) plus the encode parameters. Bitmaps are only weakly referenced,
+ * entries of collected bitmaps are never hit again and age out of the LRU.
+ *
+ * Enable it for JsonHelper with JsonHelper.setBitmapCache(), and register it
+ * with Context.registerComponentCallbacks() to release memory when asked.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class BitmapEncodeCache implements ComponentCallbacks2 {
+
+    /**
+     * Parameters of ImageComponent.getBitmapBase64(Bitmap)
+     */
+    private static final int DEFAULT_PARAMS = -1;
+
+    private final LruCache<Key, String> cache;
+
+    /**
+     * @param maxBytes max size of cached strings in bytes
+     */
+    public BitmapEncodeCache(int maxBytes) {
+        cache = new LruCache<Key, String>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, String value) {
+                return value.length() * 2;
+            }
+        };
+    }
+
+    /**
+     * Same as ImageComponent.getBitmapBase64(Bitmap), encoding only on miss
+     */
+    public String getBitmapBase64(@NonNull Bitmap bitmap) {
+        Key key = new Key(bitmap, DEFAULT_PARAMS, DEFAULT_PARAMS, DEFAULT_PARAMS);
+        String value = cache.get(key);
+
+        if (value == null) {
+            value = ImageComponent.getBitmapBase64(bitmap);
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Same as ImageComponent.getBitmapBase64(Bitmap, int, int, int), encoding only on miss
+     */
+    public String getBitmapBase64(@NonNull Bitmap bitmap, int width, int height, int quality) {
+        Key key = new Key(bitmap, width, height, quality);
+        String value = cache.get(key);
+
+        if (value == null) {
+            value = ImageComponent.getBitmapBase64(bitmap, width, height, quality);
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * Cached strings size in bytes
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return cache.maxSize();
+    }
+
+    public long getHitCount() {
+        return cache.hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * Halve the cache when memory runs low, clear it when critical or in background
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    private void put(Key key, String value) {
+        if (value != null) {
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * Bitmap identity with encode parameters
+     */
+    private static class Key {
+        private final WeakReference<Bitmap> bitmap;
+        private final int identity;
+        private final int generationId;
+        private final int width;
+        private final int height;
+        private final int quality;
+
+        private Key(Bitmap bitmap, int width, int height, int quality) {
+            this.bitmap = new WeakReference<>(bitmap);
+            this.identity = System.identityHashCode(bitmap);
+            this.generationId = bitmap.getGenerationId();
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            Bitmap value = bitmap.get();
+
+            return value != null
+                    && value == key.bitmap.get()
+                    && generationId == key.generationId
+                    && width == key.width
+                    && height == key.height
+                    && quality == key.quality;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = identity;
+            result = 31 * result + generationId;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return 31 * result + quality;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package you.thiago.commonhelpers;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Business day arithmetic over primitive epoch days
+ *
+ * Working days of each year are kept as a precomputed bitset (one bit per day)
+ * with running counts per 64 days word, built lazily on first use. Queries cost
+ * O(1) inside a year plus one step per crossed year, and do not allocate for
+ * years between 1900 and 2199.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class BusinessCalendar {
+
+    /**
+     * Years with cached bitsets, other years are built on every query
+     */
+    private static final int FIRST_CACHED_YEAR = 1900;
+    private static final int LAST_CACHED_YEAR = 2199;
+
+    private static final int[] DEFAULT_WEEKEND = new int[] {Calendar.SATURDAY, Calendar.SUNDAY};
+
+    /**
+     * Non working days of week, indexed by Calendar.SUNDAY..Calendar.SATURDAY
+     */
+    private final boolean[] isWeekend = new boolean[8];
+
+    /**
+     * Sorted holidays without duplicates
+     */
+    private final long[] holidays;
+
+    private final AtomicReferenceArray<Year> years = new AtomicReferenceArray<>(LAST_CACHED_YEAR - FIRST_CACHED_YEAR + 1);
+
+    /**
+     * Saturday and Sunday as weekend
+     * @param holidayLists holiday epoch days (e.g. national and regional lists)
+     */
+    public BusinessCalendar(long[]... holidayLists) {
+        this(DEFAULT_WEEKEND, holidayLists);
+    }
+
+    /**
+     * @param weekendDays  non working days of week (Calendar.SUNDAY..Calendar.SATURDAY)
+     * @param holidayLists holiday epoch days (e.g. national and regional lists)
+     */
+    public BusinessCalendar(int[] weekendDays, long[]... holidayLists) {
+        for (int day : weekendDays) {
+            if (day < Calendar.SUNDAY || day > Calendar.SATURDAY) {
+                throw new IllegalArgumentException("Invalid day of week: " + day);
+            }
+
+            isWeekend[day] = true;
+        }
+
+        if (countWeekend() == 7) {
+            throw new IllegalArgumentException("Calendar without working days");
+        }
+
+        int count = 0;
+        for (long[] list : holidayLists) {
+            count += list.length;
+        }
+
+        long[] merged = new long[count];
+        int offset = 0;
+        for (long[] list : holidayLists) {
+            System.arraycopy(list, 0, merged, offset, list.length);
+            offset += list.length;
+        }
+
+        Arrays.sort(merged);
+
+        /* drop duplicates */
+        int length = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i == 0 || merged[i] != merged[i - 1]) {
+                merged[length++] = merged[i];
+            }
+        }
+
+        this.holidays = Arrays.copyOf(merged, length);
+    }
+
+    /**
+     * New calendar with same weekend and extra holidays (e.g. regional ones)
+     */
+    public BusinessCalendar withHolidays(long[] extraHolidays) {
+        int[] weekendDays = new int[countWeekend()];
+        int length = 0;
+
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+            if (isWeekend[day]) {
+                weekendDays[length++] = day;
+            }
+        }
+
+        return new BusinessCalendar(weekendDays, holidays, extraHolidays);
+    }
+
+    public boolean isBusinessDay(long epochDay) {
+        Year year = getYear(yearOf(epochDay));
+        int index = (int) (epochDay - year.firstDay);
+
+        return (year.words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Count business days in [from, to) (negative if to is before from)
+     */
+    public int businessDaysBetween(long from, long to) {
+        if (to < from) {
+            return -businessDaysBetween(to, from);
+        }
+
+        int fromYear = yearOf(from);
+        int toYear = yearOf(to);
+
+        if (fromYear == toYear) {
+            Year year = getYear(fromYear);
+            return year.countBefore(to) - year.countBefore(from);
+        }
+
+        Year first = getYear(fromYear);
+        int count = first.total - first.countBefore(from);
+
+        for (int y = fromYear + 1; y < toYear; y++) {
+            count += getYear(y).total;
+        }
+
+        return count + getYear(toYear).countBefore(to);
+    }
+
+    /**
+     * Move some business days from a day (start itself is not counted)
+     * Negative values move backwards, zero returns the start day
+     */
+    public long addBusinessDays(long epochDay, int days) {
+        if (days > 0) {
+            long day = epochDay + 1;
+            int y = yearOf(day);
+            Year year = getYear(y);
+
+            int before = year.countBefore(day);
+            int remaining = days;
+
+            while (remaining > year.total - before) {
+                remaining -= year.total - before;
+                year = getYear(++y);
+                before = 0;
+            }
+
+            return year.select(before + remaining - 1);
+        }
+
+        if (days < 0) {
+            int y = yearOf(epochDay);
+            Year year = getYear(y);
+
+            int available = year.countBefore(epochDay);
+            int remaining = -days;
+
+            while (remaining > available) {
+                remaining -= available;
+                year = getYear(--y);
+                available = year.total;
+            }
+
+            return year.select(available - remaining);
+        }
+
+        return epochDay;
+    }
+
+    /**
+     * Next business day on or after a day
+     */
+    public long nextBusinessDay(long epochDay) {
+        return isBusinessDay(epochDay) ? epochDay : addBusinessDays(epochDay, 1);
+    }
+
+    private int countWeekend() {
+        int count = 0;
+
+        for (boolean weekend : isWeekend) {
+            if (weekend) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int yearOf(long epochDay) {
+        return EpochDays.year(EpochDays.toYearMonthDay(epochDay));
+    }
+
+    private Year getYear(int year) {
+        if (year < FIRST_CACHED_YEAR || year > LAST_CACHED_YEAR) {
+            return new Year(year);
+        }
+
+        Year cached = years.get(year - FIRST_CACHED_YEAR);
+        if (cached == null) {
+            cached = new Year(year);
+            years.set(year - FIRST_CACHED_YEAR, cached);
+        }
+
+        return cached;
+    }
+
+    /**
+     * Working days bitset of a single year
+     */
+    private class Year {
+        private final long firstDay;
+        private final long[] words;
+
+        /**
+         * Business days before each word
+         */
+        private final int[] countBeforeWord;
+        private final int total;
+
+        private Year(int year) {
+            firstDay = EpochDays.of(year, 1, 1);
+
+            int length = EpochDays.isLeapYear(year) ? 366 : 365;
+            words = new long[(length + 63) >>> 6];
+            countBeforeWord = new int[words.length];
+
+            int dayOfWeek = EpochDays.dayOfWeek(firstDay);
+            for (int i = 0; i < length; i++) {
+                if (!isWeekend[dayOfWeek]) {
+                    words[i >>> 6] |= 1L << i;
+                }
+
+                dayOfWeek = dayOfWeek == Calendar.SATURDAY ? Calendar.SUNDAY : dayOfWeek + 1;
+            }
+
+            int from = Arrays.binarySearch(holidays, firstDay);
+            for (int i = from >= 0 ? from : -from - 1; i < holidays.length && holidays[i] < firstDay + length; i++) {
+                int index = (int) (holidays[i] - firstDay);
+                words[index >>> 6] &= ~(1L << index);
+            }
+
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                countBeforeWord[i] = count;
+                count += Long.bitCount(words[i]);
+            }
+
+            total = count;
+        }
+
+        /**
+         * Business days of this year before a day of this year
+         */
+        private int countBefore(long epochDay) {
+            int index = (int) (epochDay - firstDay);
+            int word = index >>> 6;
+
+            return countBeforeWord[word] + Long.bitCount(words[word] & ((1L << index) - 1));
+        }
+
+        /**
+         * Day of the business day with given zero based rank in this year
+         */
+        private long select(int rank) {
+            int word = words.length - 1;
+            while (countBeforeWord[word] > rank) {
+                word--;
+            }
+
+            long bits = words[word];
+            for (int i = rank - countBeforeWord[word]; i > 0; i--) {
+                bits &= bits - 1;
+            }
+
+            return firstDay + (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package you.thiago.commonhelpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream that gzips or deflates on the fly once the data passes a threshold
+ *
+ * The first bytes are kept in memory up to threshold. Smaller payloads are
+ * written as is, larger ones are compressed while they are written, so the
+ * whole text and its compressed copy never coexist. The sink is opened only
+ * when that choice is known, letting HTTP callers set Content-Encoding first.
+ *
+ * Usage:
+ *  int format = DeviceHelper.isConnectionSlow(context) ? CompressedOutputStream.GZIP : CompressedOutputStream.NONE;
+ *  CompressedOutputStream out = new CompressedOutputStream(new CompressedOutputStream.Opener() {
+ *      public OutputStream open(boolean compressed) throws IOException {
+ *          if (compressed) connection.setRequestProperty("Content-Encoding", "gzip");
+ *          return connection.getOutputStream();
+ *      }
+ *  }, format, CompressedOutputStream.DEFAULT_THRESHOLD);
+ *  json.writeTo(out);
+ *  out.close();
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class CompressedOutputStream extends OutputStream {
+
+    /**
+     * Never compress
+     */
+    public static final int NONE = 0;
+
+    /**
+     * gzip format (Content-Encoding: gzip)
+     */
+    public static final int GZIP = 1;
+
+    /**
+     * zlib format (Content-Encoding: deflate)
+     */
+    public static final int DEFLATE = 2;
+
+    /**
+     * Below about 1 KB the compression headers and CPU are not worth it
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final int COMPRESSOR_BUFFER_SIZE = 8192;
+
+    /**
+     * Open the real sink once compression is decided
+     */
+    public interface Opener {
+        OutputStream open(boolean compressed) throws IOException;
+    }
+
+    private final Opener opener;
+    private final int format;
+
+    /**
+     * Bytes kept until threshold is passed, null once the sink is open
+     */
+    private byte[] pending;
+    private int pendingLength;
+
+    private CountingOutputStream sink;
+    private OutputStream out;
+    private Deflater deflater;
+    private final byte[] single = new byte[1];
+    private boolean compressed;
+    private boolean finished;
+
+    private long inputSize;
+    private long elapsedNanos;
+
+    public CompressedOutputStream(@NonNull final OutputStream out, int format, int threshold) {
+        this(new Opener() {
+            @Override
+            public OutputStream open(boolean compressed) {
+                return out;
+            }
+        }, format, threshold);
+    }
+
+    /**
+     * @param format    NONE, GZIP or DEFLATE
+     * @param threshold size in bytes from which data is compressed
+     */
+    public CompressedOutputStream(@NonNull Opener opener, int format, int threshold) {
+        if (format < NONE || format > DEFLATE) {
+            throw new IllegalArgumentException("Invalid format: " + format);
+        }
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold < 0");
+        }
+
+        this.opener = opener;
+        this.format = format;
+        this.pending = new byte[format == NONE ? 0 : threshold];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(@NonNull byte[] bytes, int offset, int count) throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+
+        inputSize += count;
+
+        if (pending != null) {
+            if (count <= pending.length - pendingLength) {
+                System.arraycopy(bytes, offset, pending, pendingLength, count);
+                pendingLength += count;
+                return;
+            }
+
+            open(format != NONE);
+        }
+
+        if (compressed) {
+            compress(bytes, offset, count);
+        } else {
+            out.write(bytes, offset, count);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Write remaining data without closing the sink
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        if (pending != null) {
+            open(false);
+        }
+
+        finished = true;
+
+        if (compressed) {
+            /* closing the compressor releases its native memory, the sink stays open */
+            long start = System.nanoTime();
+            long sinkStart = sink.nanos;
+            out.close();
+            elapsedNanos += System.nanoTime() - start - (sink.nanos - sinkStart);
+
+            if (deflater != null) {
+                deflater.end();
+            }
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Finish and close the sink
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            if (sink != null) {
+                sink.out.close();
+            }
+        }
+    }
+
+    /**
+     * Check if data was compressed (known once threshold is passed or finished)
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Bytes written into this stream
+     */
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Bytes written into the sink
+     */
+    public long getOutputSize() {
+        return sink != null ? sink.count : 0;
+    }
+
+    /**
+     * Output size / input size (1 when not compressed)
+     */
+    public double getCompressionRatio() {
+        return inputSize > 0 ? (double) getOutputSize() / inputSize : 1;
+    }
+
+    /**
+     * Time spent in the compressor, in milliseconds
+     * (writes of compressed data into the sink are not counted)
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    /**
+     * Open sink and write pending bytes
+     */
+    private void open(boolean compress) throws IOException {
+        sink = new CountingOutputStream(opener.open(compress), compress);
+        compressed = compress;
+
+        if (!compress) {
+            out = sink;
+        } else if (format == GZIP) {
+            out = new GZIPOutputStream(sink, COMPRESSOR_BUFFER_SIZE);
+        } else {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            out = new DeflaterOutputStream(sink, deflater, COMPRESSOR_BUFFER_SIZE);
+        }
+
+        byte[] bytes = pending;
+        pending = null;
+
+        if (pendingLength > 0) {
+            if (compressed) {
+                compress(bytes, 0, pendingLength);
+            } else {
+                out.write(bytes, 0, pendingLength);
+            }
+        }
+    }
+
+    /**
+     * Write into the compressor, timing it without the sink writes it makes
+     */
+    private void compress(byte[] bytes, int offset, int count) throws IOException {
+        long start = System.nanoTime();
+        long sinkStart = sink.nanos;
+
+        out.write(bytes, offset, count);
+
+        elapsedNanos += System.nanoTime() - start - (sink.nanos - sinkStart);
+    }
+
+    /**
+     * Count bytes written into the sink and, when timed, the time spent writing them
+     * (close only flushes, the sink is closed by close())
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final boolean timed;
+        private long count;
+        private long nanos;
+
+        private CountingOutputStream(OutputStream out, boolean timed) {
+            this.out = out;
+            this.timed = timed;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = timed ? System.nanoTime() : 0;
+            out.write(b);
+            count++;
+
+            if (timed) {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] bytes, int offset, int count) throws IOException {
+            long start = timed ? System.nanoTime() : 0;
+            out.write(bytes, offset, count);
+            this.count += count;
+
+            if (timed) {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = timed ? System.nanoTime() : 0;
+            out.flush();
+
+            if (timed) {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package you.thiago.commonhelpers;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Rewrite date columns of delimited text (CSV, TSV...) from a Reader into a Writer
+ *
+ * Source layout of each cell is detected with the date format list (same rules
+ * as DateHelper.stringToDate) and rewritten with the target pattern. Cells that
+ * are not dates are copied untouched. Quoted fields are supported.
+ *
+ * Memory use is bounded by the internal buffers, which are reused between
+ * calls, so one instance should not be shared by concurrent threads.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DateColumnReformatter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Longer cells are not dates and are copied as they come
+     */
+    private static final int MAX_DATE_LENGTH = 64;
+
+    private final char delimiter;
+    private final boolean[] isDateColumn;
+    private final String pattern;
+    private final String[] formatList;
+    private final DateShape[] shapes;
+
+    private final char[] readBuffer = new char[BUFFER_SIZE];
+    private final char[] writeBuffer = new char[BUFFER_SIZE];
+    private final StringBuilder cell = new StringBuilder(MAX_DATE_LENGTH);
+    private final StringBuilder formatted = new StringBuilder(MAX_DATE_LENGTH);
+    private final ParsePosition position = new ParsePosition(0);
+    private final Date date = new Date();
+
+    private int writeLength;
+
+    /**
+     * Use default date format list to detect source layout
+     */
+    public DateColumnReformatter(char delimiter, int[] columns, String pattern) {
+        this(delimiter, columns, pattern, DateHelper.DEFAULT_FORMAT_LIST);
+    }
+
+    /**
+     * Use date format list from values.xml to detect source layout
+     */
+    public DateColumnReformatter(Context context, char delimiter, int[] columns, String pattern) {
+        this(delimiter, columns, pattern, context.getResources().getStringArray(R.array.date_format_list));
+    }
+
+    /**
+     * @param delimiter column delimiter
+     * @param columns   zero based indexes of date columns
+     * @param pattern   target date pattern
+     */
+    public DateColumnReformatter(char delimiter, int[] columns, String pattern, String[] formatList) {
+        int maxColumn = -1;
+        for (int column : columns) {
+            maxColumn = Math.max(maxColumn, column);
+        }
+
+        this.delimiter = delimiter;
+        this.isDateColumn = new boolean[maxColumn + 1];
+        this.pattern = pattern;
+        this.formatList = formatList;
+        this.shapes = DateHelper.getShapes(formatList);
+
+        for (int column : columns) {
+            if (column >= 0) {
+                isDateColumn[column] = true;
+            }
+        }
+    }
+
+    /**
+     * Copy in into out rewriting date columns
+     * Streams are not closed, out is flushed
+     *
+     * @return number of rewritten cells
+     */
+    public long reformat(Reader in, Writer out) throws IOException {
+        long count = 0;
+
+        int column = 0;
+        boolean isFieldStart = true;
+        boolean isQuoted = false;
+        boolean isInsideQuotes = false;
+        boolean isBuffering = false;
+
+        writeLength = 0;
+        cell.setLength(0);
+
+        int read;
+        while ((read = in.read(readBuffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = readBuffer[i];
+
+                if (isFieldStart) {
+                    isFieldStart = false;
+                    isBuffering = column < isDateColumn.length && isDateColumn[column];
+
+                    if (c == '"') {
+                        isQuoted = true;
+                        isInsideQuotes = true;
+                        write(c, out);
+                        continue;
+                    }
+                }
+
+                if (isInsideQuotes) {
+                    if (c == '"') {
+                        isInsideQuotes = false;
+
+                        /* closing quote of a date cell is written after the new value */
+                        if (isBuffering) {
+                            continue;
+                        }
+                    }
+                } else if (c == delimiter || c == '\n' || c == '\r') {
+                    if (isBuffering) {
+                        count += endCell(isQuoted, out);
+                        isBuffering = false;
+                    }
+
+                    write(c, out);
+
+                    column = c == delimiter ? column + 1 : 0;
+                    isFieldStart = true;
+                    isQuoted = false;
+                    continue;
+                } else if (isQuoted && isBuffering) {
+                    /* escaped quote ("") or text after the closing quote: not a date */
+                    flushCell(out);
+                    write('"', out);
+                    isBuffering = false;
+                    isInsideQuotes = c == '"';
+                } else if (isQuoted && c == '"') {
+                    /* escaped quote ("") inside a quoted cell */
+                    isInsideQuotes = true;
+                }
+
+                if (isBuffering && cell.length() < MAX_DATE_LENGTH) {
+                    cell.append(c);
+                    continue;
+                }
+
+                if (isBuffering) {
+                    flushCell(out);
+                    isBuffering = false;
+                }
+
+                write(c, out);
+            }
+        }
+
+        if (isBuffering) {
+            if (isInsideQuotes) {
+                flushCell(out);
+            } else {
+                count += endCell(isQuoted, out);
+            }
+        }
+
+        out.write(writeBuffer, 0, writeLength);
+        out.flush();
+
+        return count;
+    }
+
+    /**
+     * Write buffered cell, rewritten when it is a date
+     * @return 1 if the cell was rewritten
+     */
+    private int endCell(boolean isQuoted, Writer out) throws IOException {
+        int rewritten = 0;
+        String value = cell.toString();
+
+        long millis = DateHelper.isDateValue(value) ? DateHelper.parseMillis(value, formatList, shapes, position) : IsoDateCodec.INVALID;
+
+        if (millis != IsoDateCodec.INVALID) {
+            formatted.setLength(0);
+
+            if (!IsoDateCodec.supports(pattern) || !IsoDateCodec.append(millis, pattern, formatted)) {
+                SimpleDateFormat formatter = DateFormatterCache.get(pattern);
+                date.setTime(millis);
+                formatted.append(formatter.format(date));
+            }
+
+            cell.setLength(0);
+            cell.append(formatted);
+            rewritten = 1;
+        }
+
+        flushCell(out);
+
+        if (isQuoted) {
+            write('"', out);
+        }
+
+        return rewritten;
+    }
+
+    private void flushCell(Writer out) throws IOException {
+        for (int i = 0; i < cell.length(); i++) {
+            write(cell.charAt(i), out);
+        }
+
+        cell.setLength(0);
+    }
+
+    private void write(char c, Writer out) throws IOException {
+        if (writeLength == writeBuffer.length) {
+            out.write(writeBuffer, 0, writeLength);
+            writeLength = 0;
+        }
+
+        writeBuffer[writeLength++] = c;
+    }
+
+    @Override
+    public String toString() {
+        return "DateColumnReformatter{delimiter=" + delimiter + ", pattern=" + pattern + ", formatList=" + Arrays.toString(formatList) + "}";
+    }
+}
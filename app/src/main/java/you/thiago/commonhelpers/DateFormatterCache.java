@@ -0,0 +1,92 @@
+package you.thiago.commonhelpers;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Registry of date formatters keyed by (pattern, locale)
+ *
+ * SimpleDateFormat is not thread safe, so each thread keeps its own instances.
+ * They are built for the current default time zone and dropped when it changes.
+ * Formatters returned here are shared by every caller on the same thread and
+ * must not be reconfigured (applyPattern, setTimeZone, setLenient...).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DateFormatterCache {
+
+    /**
+     * Bumped by invalidate() to drop the formatters of every thread
+     */
+    private static volatile int generation = 0;
+
+    /**
+     * Formatters of the current thread
+     */
+    private static final ThreadLocal<ThreadFormatters> FORMATTERS = new ThreadLocal<ThreadFormatters>() {
+        @Override
+        protected ThreadFormatters initialValue() {
+            return new ThreadFormatters();
+        }
+    };
+
+    private DateFormatterCache() {}
+
+    /**
+     * Get formatter for pattern with default locale
+     */
+    public static SimpleDateFormat get(String pattern) {
+        return get(pattern, Locale.getDefault());
+    }
+
+    /**
+     * Get formatter for pattern and locale
+     */
+    public static SimpleDateFormat get(String pattern, Locale locale) {
+        ThreadFormatters formatters = FORMATTERS.get();
+        TimeZone timeZone = EpochDays.getDefaultTimeZone();
+
+        if (formatters.generation != generation || formatters.timeZone != timeZone) {
+            formatters.byLocale.clear();
+            formatters.generation = generation;
+            formatters.timeZone = timeZone;
+        }
+
+        HashMap<String, SimpleDateFormat> byPattern = formatters.byLocale.get(locale);
+        if (byPattern == null) {
+            byPattern = new HashMap<>();
+            formatters.byLocale.put(locale, byPattern);
+        }
+
+        SimpleDateFormat formatter = byPattern.get(pattern);
+        if (formatter == null) {
+            formatter = new SimpleDateFormat(pattern, locale);
+            byPattern.put(pattern, formatter);
+        }
+
+        return formatter;
+    }
+
+    /**
+     * Drop cached formatters of all threads, the cached default time zone and
+     * the parses cached by DateHelper.setParseCache() (they hold millis of the old zone)
+     * Default time zone changes are picked up without it, call it to free the
+     * formatters or after a time zone rules update
+     */
+    public static synchronized void invalidate() {
+        generation++;
+        EpochDays.resetDefaultTimeZone();
+
+        DateParseCache parseCache = DateHelper.getParseCache();
+        if (parseCache != null) {
+            parseCache.clear();
+        }
+    }
+
+    private static class ThreadFormatters {
+        private final HashMap<Locale, HashMap<String, SimpleDateFormat>> byLocale = new HashMap<>();
+        private int generation = DateFormatterCache.generation;
+        private TimeZone timeZone;
+    }
+}
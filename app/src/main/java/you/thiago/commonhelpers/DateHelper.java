@@ -1,16 +1,17 @@
 package you.thiago.commonhelpers;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
 import android.util.Log;
 
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
-import java.time.LocalDate;
-import java.time.Period;
-import java.time.ZoneId;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.TimeZone;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class DateHelper {
@@ -29,55 +30,301 @@ public class DateHelper {
     /**
      * Default date format list
      */
-    private static final String[] DEFAULT_FORMAT_LIST = new String[] {
+    static final String[] DEFAULT_FORMAT_LIST = new String[] {
             "yyyy-MM-dd HH:mm:ss",
             "yyyy-MM-dd",
             "dd/MM/yyyy HH:mm:ss",
             "dd/MM/yyyy",
     };
 
+    /**
+     * Compiled shapes of default date format list
+     */
+    private static final DateShape[] DEFAULT_SHAPES = DateHelper.getShapes(DEFAULT_FORMAT_LIST);
+
+    /**
+     * Minimum cells per worker in bulk conversions
+     */
+    private static final int BULK_CHUNK_SIZE = 4096;
+
+    /**
+     * Date format list from values.xml, loaded once per configuration
+     */
+    private static volatile ResourceFormatList resourceFormatList;
+
+    /**
+     * Optional cache used by stringToDate(String)
+     */
+    private static volatile DateParseCache parseCache;
+
+    /**
+     * Default time zone of the values in parseCache
+     */
+    private static volatile TimeZone parseCacheTimeZone;
+
     /**
      * Use default date format list to parse string into date
      */
     public static Date stringToDate(String value) {
-        return DateHelper.stringToDate(value, DEFAULT_FORMAT_LIST);
+        DateParseCache cache = parseCache;
+
+        if (cache == null || value == null) {
+            return DateHelper.stringToDate(value, DEFAULT_FORMAT_LIST);
+        }
+
+        TimeZone timeZone = EpochDays.getDefaultTimeZone();
+        if (parseCacheTimeZone != timeZone) {
+            /* cached millis were parsed in the old zone */
+            cache.clear();
+            parseCacheTimeZone = timeZone;
+        }
+
+        long millis = cache.get(value);
+        if (millis != IsoDateCodec.INVALID) {
+            return new Date(millis);
+        }
+
+        Date date = DateHelper.stringToDate(value, DEFAULT_FORMAT_LIST);
+        if (date != null) {
+            cache.put(value, date.getTime());
+        }
+
+        return date;
+    }
+
+    /**
+     * Set cache used by stringToDate(String) (null to disable)
+     * Useful for payloads that repeat the same timestamps many times
+     */
+    public static void setParseCache(DateParseCache cache) {
+        parseCache = cache;
+    }
+
+    public static DateParseCache getParseCache() {
+        return parseCache;
     }
 
     /**
      * Use date format list from values.xml to parse string into date
      */
     public static Date stringToDate(String value, Context context) {
-        String[] formatList = context.getResources().getStringArray(R.array.date_format_list);
-        return DateHelper.stringToDate(value, formatList);
+        ResourceFormatList formatList = DateHelper.getResourceFormatList(context);
+        return DateHelper.stringToDate(value, formatList.formats, formatList.shapes);
     }
 
     /**
      * Parse string into date
      */
     public static Date stringToDate(String value, String[] formatList) {
-        String logMsg = "";
+        return DateHelper.stringToDate(value, formatList, formatList == DEFAULT_FORMAT_LIST ? DEFAULT_SHAPES : null);
+    }
+
+    /**
+     * Parse string into date with shapes of formatList (computed when null)
+     */
+    private static Date stringToDate(String value, String[] formatList, DateShape[] shapes) {
         Date date = null;
 
-        if (value != null && !value.trim().isEmpty() && !value.toLowerCase().equals("null") && !value.equals("0000-00-00") &&  !value.equals("0000-00-00 00:00:00")) {
-            for (String format : formatList) {
-                try {
-                    SimpleDateFormat formatter = new SimpleDateFormat(format, Locale.getDefault());
-                    date = formatter.parse(value);
+        if (DateHelper.isDateValue(value)) {
+            ParsePosition position = new ParsePosition(0);
+            long millis = shapes != null
+                    ? DateHelper.parseMillis(value, formatList, shapes, position)
+                    : DateHelper.parseMillis(value, formatList, position);
 
-                    logMsg = "";
-                    break;
-                } catch (Exception e) {
-                    date = null;
-                    logMsg = e.getMessage();
+            if (millis != IsoDateCodec.INVALID) {
+                date = new Date(millis);
+            } else {
+                Log.e(DateHelper.class.getSimpleName(), "Unparseable date: \"" + value + "\"");
+            }
+        }
+
+        return date;
+    }
+
+    /**
+     * Check if value is not empty nor a null date placeholder
+     */
+    static boolean isDateValue(String value) {
+        return value != null && !value.trim().isEmpty() && !value.toLowerCase().equals("null") && !value.equals("0000-00-00") &&  !value.equals("0000-00-00 00:00:00");
+    }
+
+    /**
+     * Parse string with the first pattern whose shape matches the value
+     * Patterns are tried without exceptions, so misses stay cheap
+     */
+    private static long parseMillis(String value, String[] formatList, ParsePosition position) {
+        DateShape[] shapes = formatList == DEFAULT_FORMAT_LIST ? DEFAULT_SHAPES : DateHelper.getShapes(formatList);
+        return DateHelper.parseMillis(value, formatList, shapes, position);
+    }
+
+    static long parseMillis(String value, String[] formatList, DateShape[] shapes, ParsePosition position) {
+        for (int i = 0; i < formatList.length; i++) {
+            DateShape shape = shapes[i];
+            String format = formatList[i];
+
+            if (shape == null || shape.matches(value)) {
+                long millis = DateHelper.parseMillis(value, format, position);
+                if (millis != IsoDateCodec.INVALID) {
+                    return millis;
                 }
             }
+        }
 
-            if (logMsg != null && !logMsg.equals("")) {
-                Log.e(DateHelper.class.getSimpleName(), logMsg);
+        /* values out of the fixed layout (e.g. "5/1/2020") are still accepted by the formatter */
+        for (int i = 0; i < formatList.length; i++) {
+            DateShape shape = shapes[i];
+            String format = formatList[i];
+
+            if (shape != null && !shape.matches(value)) {
+                long millis = DateHelper.parseMillis(value, format, position);
+                if (millis != IsoDateCodec.INVALID) {
+                    return millis;
+                }
             }
         }
 
-        return date;
+        return IsoDateCodec.INVALID;
+    }
+
+    /**
+     * Compiled shape of each pattern (null for patterns without fixed layout)
+     */
+    static DateShape[] getShapes(String[] formatList) {
+        DateShape[] shapes = new DateShape[formatList.length];
+
+        for (int i = 0; i < formatList.length; i++) {
+            shapes[i] = DateShape.of(formatList[i]);
+        }
+
+        return shapes;
+    }
+
+    private static long parseMillis(String value, String format, ParsePosition position) {
+        if (IsoDateCodec.supports(format)) {
+            long millis = IsoDateCodec.parse(value, format);
+            if (millis != IsoDateCodec.INVALID) {
+                return millis;
+            }
+        }
+
+        position.setIndex(0);
+        position.setErrorIndex(-1);
+
+        Date date = DateFormatterCache.get(format).parse(value, position);
+
+        return date != null ? date.getTime() : IsoDateCodec.INVALID;
+    }
+
+    /**
+     * Use default date format list to parse values into epoch millis
+     * @see #parseAll(CharSequence[], long[], String[])
+     */
+    public static BitSet parseAll(CharSequence[] in, long[] out) {
+        return DateHelper.parseAll(in, out, DEFAULT_FORMAT_LIST);
+    }
+
+    /**
+     * Parse a column of values into epoch millis
+     * Large inputs are split across worker threads
+     *
+     * @return indexes of empty or unparseable cells (out holds IsoDateCodec.INVALID there)
+     * @throws IllegalArgumentException when out is shorter than in
+     */
+    public static BitSet parseAll(final CharSequence[] in, final long[] out, final String[] formatList) {
+        if (out.length < in.length) {
+            throw new IllegalArgumentException("out length " + out.length + " < in length " + in.length);
+        }
+
+        final BitSet failed = new BitSet(in.length);
+        final DateShape[] shapes = formatList == DEFAULT_FORMAT_LIST ? DEFAULT_SHAPES : DateHelper.getShapes(formatList);
+
+        ParallelTasks.forEachChunk(in.length, BULK_CHUNK_SIZE, new ParallelTasks.Chunk() {
+            @Override
+            public void run(int from, int to) {
+                ParsePosition position = new ParsePosition(0);
+                BitSet chunkFailed = null;
+
+                for (int i = from; i < to; i++) {
+                    String value = in[i] != null ? in[i].toString() : null;
+                    out[i] = DateHelper.isDateValue(value) ? DateHelper.parseMillis(value, formatList, shapes, position) : IsoDateCodec.INVALID;
+
+                    if (out[i] == IsoDateCodec.INVALID) {
+                        if (chunkFailed == null) {
+                            chunkFailed = new BitSet(to - from);
+                        }
+
+                        chunkFailed.set(i - from);
+                    }
+                }
+
+                if (chunkFailed != null) {
+                    DateHelper.merge(failed, chunkFailed, from);
+                }
+            }
+        });
+
+        return failed;
+    }
+
+    /**
+     * Format a column of epoch millis with pattern
+     * Large inputs are split across worker threads
+     *
+     * @return indexes of IsoDateCodec.INVALID cells (out holds null there)
+     * @throws IllegalArgumentException when out is shorter than in
+     */
+    public static BitSet formatAll(final long[] in, final String[] out, final String pattern) {
+        if (out.length < in.length) {
+            throw new IllegalArgumentException("out length " + out.length + " < in length " + in.length);
+        }
+
+        final BitSet failed = new BitSet(in.length);
+
+        ParallelTasks.forEachChunk(in.length, BULK_CHUNK_SIZE, new ParallelTasks.Chunk() {
+            @Override
+            public void run(int from, int to) {
+                boolean isIso = IsoDateCodec.supports(pattern);
+                SimpleDateFormat formatter = DateFormatterCache.get(pattern);
+                Date date = new Date();
+                BitSet chunkFailed = null;
+
+                for (int i = from; i < to; i++) {
+                    out[i] = null;
+
+                    if (in[i] != IsoDateCodec.INVALID) {
+                        out[i] = isIso ? IsoDateCodec.format(in[i], pattern) : null;
+
+                        if (out[i] == null) {
+                            date.setTime(in[i]);
+                            out[i] = formatter.format(date);
+                        }
+                    } else {
+                        if (chunkFailed == null) {
+                            chunkFailed = new BitSet(to - from);
+                        }
+
+                        chunkFailed.set(i - from);
+                    }
+                }
+
+                if (chunkFailed != null) {
+                    DateHelper.merge(failed, chunkFailed, from);
+                }
+            }
+        });
+
+        return failed;
+    }
+
+    /**
+     * Set bits of a chunk bitmap (indexes relative to offset) into the shared result
+     */
+    private static void merge(BitSet failed, BitSet chunkFailed, int offset) {
+        synchronized (failed) {
+            for (int i = chunkFailed.nextSetBit(0); i >= 0; i = chunkFailed.nextSetBit(i + 1)) {
+                failed.set(offset + i);
+            }
+        }
     }
 
     /**
@@ -86,8 +333,15 @@ public class DateHelper {
     public static Date stringToDate(String string, String pattern) {
         Date date = null;
 
+        if (IsoDateCodec.supports(pattern)) {
+            long millis = IsoDateCodec.parse(string, pattern);
+            if (millis != IsoDateCodec.INVALID) {
+                return new Date(millis);
+            }
+        }
+
         try {
-            SimpleDateFormat formatter = new SimpleDateFormat(pattern, Locale.getDefault());
+            SimpleDateFormat formatter = DateFormatterCache.get(pattern);
             date = formatter.parse(string);
         } catch (Exception e) {
             Log.e(DateHelper.class.getSimpleName(), e.getMessage(), e);
@@ -107,8 +361,23 @@ public class DateHelper {
      * Use date format list from values.xml to parse date into string
      */
     public static String dateToString(Date value, Context context) {
-        String[] formatList = context.getResources().getStringArray(R.array.date_format_list);
-        return DateHelper.dateToString(value, formatList);
+        return DateHelper.dateToString(value, DateHelper.getResourceFormatList(context).formats);
+    }
+
+    /**
+     * Get date format list from values.xml
+     * The list is reloaded only when locale changes (other configuration changes are ignored)
+     */
+    private static ResourceFormatList getResourceFormatList(Context context) {
+        Locale locale = DateHelper.getLocale(context.getResources().getConfiguration());
+        ResourceFormatList formatList = resourceFormatList;
+
+        if (formatList == null || !formatList.locale.equals(locale)) {
+            formatList = new ResourceFormatList(locale, context.getResources().getStringArray(R.array.date_format_list));
+            resourceFormatList = formatList;
+        }
+
+        return formatList;
     }
 
     /**
@@ -120,8 +389,11 @@ public class DateHelper {
         if (value != null) {
             for (String format : formatList) {
                 try {
-                    SimpleDateFormat formatter = new SimpleDateFormat(format, Locale.getDefault());
-                    stringDate = formatter.format(value);
+                    stringDate = IsoDateCodec.supports(format) ? IsoDateCodec.format(value.getTime(), format) : null;
+
+                    if (stringDate == null) {
+                        stringDate = DateFormatterCache.get(format).format(value);
+                    }
 
                     logMsg = "";
                     break;
@@ -146,8 +418,13 @@ public class DateHelper {
         String dateToString = "";
         try {
             if (date != null) {
-                SimpleDateFormat formatter = new SimpleDateFormat(pattern, Locale.getDefault());
-                dateToString = formatter.format(date);
+                if (IsoDateCodec.supports(pattern)) {
+                    dateToString = IsoDateCodec.format(date.getTime(), pattern);
+                }
+
+                if (dateToString == null || dateToString.isEmpty()) {
+                    dateToString = DateFormatterCache.get(pattern).format(date);
+                }
             }
         } catch (Exception e) {
             Log.e(DateHelper.class.getSimpleName(), e.getMessage(), e);
@@ -163,9 +440,9 @@ public class DateHelper {
         try {
             Date date = DateHelper.stringToDate(value);
 
-            if (date == null) {
-                SimpleDateFormat formatter = new SimpleDateFormat(pattern, Locale.getDefault());
-                date = formatter.parse(value);
+            if (date == null && value != null) {
+                long millis = DateHelper.parseMillis(value, pattern, new ParsePosition(0));
+                date = millis != IsoDateCodec.INVALID ? new Date(millis) : null;
             }
 
             if (date != null) {
@@ -201,33 +478,50 @@ public class DateHelper {
             return null;
         }
 
-        int age;
+        return String.valueOf(DateHelper.age(EpochDays.fromMillis(value.getTime()), EpochDays.today()));
+    }
 
-        Calendar date = Calendar.getInstance();
-        date.setTime(value);
+    /**
+     * Full years between two epoch days (negative if birth is after today)
+     * Same result as Period.between(birth, today).getYears(), without allocation
+     */
+    public static int age(long birthEpochDay, long todayEpochDay) {
+        int birth = EpochDays.toYearMonthDay(birthEpochDay);
+        int today = EpochDays.toYearMonthDay(todayEpochDay);
 
-        int year = date.get(Calendar.YEAR);
-        int month = date.get(Calendar.MONTH) + 1;
-        int day = date.get(Calendar.DATE);
+        int years = EpochDays.year(today) - EpochDays.year(birth);
 
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            LocalDate localDate = LocalDate.of(year, month, day);
-            age = Period.between(localDate, LocalDate.now()).getYears();
-        } else {
-            Calendar today = Calendar.getInstance();
-            age = today.get(Calendar.YEAR) - date.get(Calendar.YEAR);
+        /* month and day only, to compare position inside the year */
+        int birthMonthDay = birth & 0x1FF;
+        int todayMonthDay = today & 0x1FF;
 
-            if (today.get(Calendar.DAY_OF_YEAR) < date.get(Calendar.DAY_OF_YEAR)) {
-                age--;
-            }
+        if (years > 0 && todayMonthDay < birthMonthDay) {
+            years--;
+        } else if (years < 0 && todayMonthDay > birthMonthDay) {
+            years++;
         }
 
-        return String.valueOf(age);
+        return years;
+    }
+
+    /**
+     * Calculate age of each birth epoch day against today
+     */
+    public static void ages(long[] birthEpochDays, int[] out) {
+        DateHelper.ages(birthEpochDays, EpochDays.today(), out);
+    }
+
+    /**
+     * Calculate age of each birth epoch day against a fixed day
+     */
+    public static void ages(long[] birthEpochDays, long todayEpochDay, int[] out) {
+        for (int i = 0; i < birthEpochDays.length; i++) {
+            out[i] = DateHelper.age(birthEpochDays[i], todayEpochDay);
+        }
     }
 
     public static String getBirthDate(int age) {
-        Calendar date = Calendar.getInstance();
-        int birthYear = date.get(Calendar.YEAR) - age;
+        int birthYear = EpochDays.year(EpochDays.toYearMonthDay(EpochDays.today())) - age;
 
         return String.valueOf(birthYear);
     }
@@ -236,51 +530,78 @@ public class DateHelper {
      * Return full month name
      */
     public static String getMonthName(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
+        return DateHelper.getMonthName(DateHelper.getMonth(date));
+    }
+
+    /**
+     * Return full month name (month from Calendar.JANUARY to Calendar.DECEMBER)
+     */
+    public static String getMonthName(int month) {
+        return MonthNames.of(Locale.getDefault()).full[month];
+    }
 
-        /* get month name */
-        String month = new SimpleDateFormat("MMMM", Locale.getDefault()).format(calendar.getTime());
+    public static String getMonthName(int month, Locale locale) {
+        return MonthNames.of(locale).full[month];
+    }
 
-        /* return capitalized month */
-        return month.substring(0, 1).toUpperCase() + month.substring(1);
+    /**
+     * Return short month name
+     */
+    public static String getShortMonthName(Date date) {
+        return DateHelper.getShortMonthName(DateHelper.getMonth(date));
+    }
+
+    /**
+     * Return short month name (month from Calendar.JANUARY to Calendar.DECEMBER)
+     */
+    public static String getShortMonthName(int month) {
+        return MonthNames.of(Locale.getDefault()).abbreviated[month];
+    }
+
+    public static String getShortMonthName(int month, Locale locale) {
+        return MonthNames.of(locale).abbreviated[month];
+    }
+
+    /**
+     * Month of date in default time zone (from Calendar.JANUARY to Calendar.DECEMBER)
+     */
+    private static int getMonth(Date date) {
+        return EpochDays.month(EpochDays.toYearMonthDay(EpochDays.fromMillis(date.getTime()))) - 1;
     }
 
     /**
      * Return year diff between an date and now
      */
     public static String getYear(Date value) {
-        int year;
-
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            LocalDate date = value.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-            year = Period.between(date, LocalDate.now()).getYears();
-        } else {
-            Calendar date = Calendar.getInstance();
-            Calendar today = Calendar.getInstance();
-
-            date.setTime(value);
-
-            /* get age based on year */
-            year = today.get(Calendar.YEAR) - date.get(Calendar.YEAR);
-
-            /* validate age based on full date */
-            if (
-                (date.get(Calendar.MONTH) > today.get(Calendar.MONTH)) ||
-                (date.get(Calendar.MONTH) == today.get(Calendar.MONTH) && date.get(Calendar.DATE) > today.get(Calendar.DATE))
-            ) {
-                year--;
-            }
-        }
+        int year = DateHelper.age(EpochDays.fromMillis(value.getTime()), EpochDays.today());
 
         return year > 0 ? Integer.toString(year) : "0";
     }
 
+    /**
+     * Return relative time label ("5 minutes ago", "yesterday") between date and now
+     */
+    public static String getRelativeTime(Date value, Context context) {
+        if (value == null) {
+            return null;
+        }
+
+        return RelativeTimeFormatter.getInstance(context).format(value.getTime());
+    }
+
+    /**
+     * Format duration as "mm:ss"
+     * Use a DurationFormatter for repeated updates (e.g. player progress)
+     */
     public static String millisecondsToTime(int milliseconds) {
-        final long minutes = TimeUnit.MILLISECONDS.toMinutes(milliseconds);
-        final long seconds = TimeUnit.MILLISECONDS.toSeconds(milliseconds) - TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(milliseconds));
+        return DateHelper.millisecondsToTime((long) milliseconds);
+    }
 
-        return String.format(Locale.getDefault(), "%02d:%02d", milliseconds, seconds);
+    public static String millisecondsToTime(long milliseconds) {
+        char[] buffer = new char[24];
+        int length = DurationFormatter.write(milliseconds, DurationFormatter.MINUTES_SECONDS, buffer, 0);
+
+        return new String(buffer, 0, length);
     }
 
     public static String addDaysToDate(int days) {
@@ -290,4 +611,28 @@ public class DateHelper {
 
         return DateHelper.dateToString(calendar.getTime(), "yyyy-MM-dd HH:mm:ss");
     }
+
+    /**
+     * Primary locale of configuration
+     */
+    @SuppressWarnings("deprecation")
+    static Locale getLocale(Configuration configuration) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return configuration.getLocales().get(0);
+        }
+
+        return configuration.locale;
+    }
+
+    private static class ResourceFormatList {
+        private final Locale locale;
+        private final String[] formats;
+        private final DateShape[] shapes;
+
+        private ResourceFormatList(Locale locale, String[] formats) {
+            this.locale = locale;
+            this.formats = formats;
+            this.shapes = DateHelper.getShapes(formats);
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package you.thiago.commonhelpers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of parsed date strings (value -> epoch millis)
+ *
+ * Entries are spread over lock-striped segments, each one an access ordered
+ * LinkedHashMap, so concurrent parsers rarely wait on each other. Only
+ * primitive epoch values are kept: callers always get their own Date.
+ *
+ * Enable it for DateHelper.stringToDate(String) with DateHelper.setParseCache().
+ * Values depend on the default time zone, DateHelper clears it when the zone changes.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DateParseCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public DateParseCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+
+        /* power of two segments, each one holding at least 16 entries */
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * 16 <= maxSize) {
+            segmentCount *= 2;
+        }
+
+        this.maxSize = maxSize;
+        this.segments = new Segment[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            int capacity = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Get cached epoch millis of value
+     * @return IsoDateCodec.INVALID if value is not cached
+     */
+    public long get(String value) {
+        Segment segment = segmentFor(value);
+        Long millis;
+
+        synchronized (segment) {
+            millis = segment.get(value);
+        }
+
+        if (millis == null) {
+            missCount.incrementAndGet();
+            return IsoDateCodec.INVALID;
+        }
+
+        hitCount.incrementAndGet();
+        return millis;
+    }
+
+    public void put(String value, long millis) {
+        Segment segment = segmentFor(value);
+
+        synchronized (segment) {
+            segment.put(value, millis);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private Segment segmentFor(String value) {
+        int hash = value.hashCode();
+        hash ^= (hash >>> 16);
+
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static class Segment extends LinkedHashMap<String, Long> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package you.thiago.commonhelpers;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed character layout of a numeric date pattern
+ *
+ * "dd/MM/yyyy" compiles to [digit, digit, '/', digit, digit, '/', digit x4], so an
+ * input can be checked against it in a single pass before any formatter is used.
+ * Patterns with text fields (MMM, EEE, a, z...) have no fixed layout.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DateShape {
+
+    /**
+     * Marks a digit slot inside the layout
+     */
+    private static final char DIGIT = 0;
+
+    /**
+     * Placeholder for patterns without fixed layout (map does not accept null)
+     */
+    private static final DateShape NONE = new DateShape(new char[0]);
+
+    /**
+     * Compiled shapes by pattern
+     */
+    private static final ConcurrentHashMap<String, DateShape> SHAPES = new ConcurrentHashMap<>();
+
+    private final char[] layout;
+
+    private DateShape(char[] layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Get compiled shape of pattern or null if pattern has no fixed layout
+     */
+    public static DateShape of(String pattern) {
+        DateShape shape = SHAPES.get(pattern);
+
+        if (shape == null) {
+            shape = compile(pattern);
+            SHAPES.put(pattern, shape);
+        }
+
+        return shape != NONE ? shape : null;
+    }
+
+    private static DateShape compile(String pattern) {
+        char[] layout = new char[pattern.length()];
+        int length = 0;
+        int i = 0;
+
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+
+            if (c == '\'') {
+                /* quoted literal ('' is a single quote) */
+                int end = pattern.indexOf('\'', i + 1);
+                if (end < 0) {
+                    return NONE;
+                }
+
+                if (end == i + 1) {
+                    layout[length++] = '\'';
+                } else {
+                    for (int j = i + 1; j < end; j++) {
+                        layout[length++] = pattern.charAt(j);
+                    }
+                }
+
+                i = end + 1;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                int run = 1;
+                while (i + run < pattern.length() && pattern.charAt(i + run) == c) {
+                    run++;
+                }
+
+                /* only numeric fields have fixed width */
+                if ("yMdHhKkmsS".indexOf(c) < 0 || (c == 'M' && run > 2)) {
+                    return NONE;
+                }
+
+                for (int j = 0; j < run; j++) {
+                    layout[length++] = DIGIT;
+                }
+
+                i += run;
+            } else {
+                layout[length++] = c;
+                i++;
+            }
+        }
+
+        char[] compact = new char[length];
+        System.arraycopy(layout, 0, compact, 0, length);
+
+        return new DateShape(compact);
+    }
+
+    /**
+     * Pattern length in characters
+     */
+    public int length() {
+        return layout.length;
+    }
+
+    /**
+     * Check if value starts with this layout
+     * (SimpleDateFormat also accepts trailing text after the pattern)
+     */
+    public boolean matches(CharSequence value) {
+        if (value.length() < layout.length) {
+            return false;
+        }
+
+        for (int i = 0; i < layout.length; i++) {
+            char c = value.charAt(i);
+
+            if (layout[i] == DIGIT) {
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            } else if (layout[i] != c) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
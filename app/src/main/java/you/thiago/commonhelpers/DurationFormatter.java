@@ -0,0 +1,145 @@
+package you.thiago.commonhelpers;
+
+/**
+ * Reusable "mm:ss" / "HH:mm:ss" duration text holder for progress updates
+ *
+ * format() rewrites the internal buffer in place and returns this instance,
+ * so a player can call it on every tick without allocation. Use
+ * TextView.setText(getChars(), 0, length()) to keep the update allocation free
+ * (setText(CharSequence) copies the text into a String).
+ *
+ * Instances are not thread safe, keep one per view.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DurationFormatter implements CharSequence {
+
+    /**
+     * "mm:ss", minutes keep growing past one hour (75:03)
+     */
+    public static final int MINUTES_SECONDS = 0;
+
+    /**
+     * "HH:mm:ss"
+     */
+    public static final int HOURS_MINUTES_SECONDS = 1;
+
+    /**
+     * "mm:ss" under one hour, "HH:mm:ss" from there
+     */
+    public static final int AUTO = 2;
+
+    /**
+     * Long.MAX_VALUE in hours has 16 digits
+     */
+    private static final int MAX_LENGTH = 16 + 6;
+
+    private final char[] buffer = new char[MAX_LENGTH];
+    private final int style;
+    private int length;
+
+    public DurationFormatter() {
+        this(MINUTES_SECONDS);
+    }
+
+    public DurationFormatter(int style) {
+        this.style = style;
+        format(0);
+    }
+
+    /**
+     * Rewrite text with duration in milliseconds (negative values show as zero)
+     */
+    public DurationFormatter format(long milliseconds) {
+        length = write(milliseconds, style, buffer, 0);
+        return this;
+    }
+
+    /**
+     * Write duration into buffer
+     * @return chars written (buffer needs up to 22 chars)
+     */
+    public static int write(long milliseconds, int style, char[] buffer, int offset) {
+        long totalSeconds = milliseconds > 0 ? milliseconds / 1000 : 0;
+        long seconds = totalSeconds % 60;
+        long minutes = totalSeconds / 60;
+
+        boolean withHours = style == HOURS_MINUTES_SECONDS || (style == AUTO && minutes >= 60);
+        int position = offset;
+
+        if (withHours) {
+            position = writePadded(minutes / 60, buffer, position);
+            buffer[position++] = ':';
+            minutes %= 60;
+        }
+
+        position = writePadded(minutes, buffer, position);
+        buffer[position++] = ':';
+        position = writePadded(seconds, buffer, position);
+
+        return position - offset;
+    }
+
+    /**
+     * Internal buffer, valid from 0 to length()
+     */
+    public char[] getChars() {
+        return buffer;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        }
+
+        return new String(buffer, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Write value with at least two digits
+     */
+    private static int writePadded(long value, char[] buffer, int position) {
+        if (value < 10) {
+            buffer[position++] = '0';
+            buffer[position++] = (char) ('0' + value);
+            return position;
+        }
+
+        if (value < 100) {
+            buffer[position++] = (char) ('0' + value / 10);
+            buffer[position++] = (char) ('0' + value % 10);
+            return position;
+        }
+
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        return position + digits;
+    }
+}
@@ -0,0 +1,166 @@
+package you.thiago.commonhelpers;
+
+import java.util.TimeZone;
+
+/**
+ * Calendar arithmetic over primitive epoch days (days since 1970-01-01)
+ *
+ * Conversions follow the proleptic Gregorian calendar and never allocate
+ * (the default time zone overloads read TimeZone.getDefault(), which clones it),
+ * so they can replace Calendar in hot loops. Civil dates are packed into a
+ * single int (see pack/year/month/day) with month in 1..12.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class EpochDays {
+
+    public static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Last default time zone read, kept while its ID does not change
+     */
+    private static volatile TimeZone defaultTimeZone;
+
+    private EpochDays() {}
+
+    /**
+     * Epoch day of a civil date (month 1..12)
+     */
+    public static long of(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Civil date of an epoch day, packed into an int
+     */
+    public static int toYearMonthDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        return pack(year, month, day);
+    }
+
+    /**
+     * Local epoch day of an instant in the default time zone
+     */
+    public static long fromMillis(long millis) {
+        return fromMillis(millis, getDefaultTimeZone());
+    }
+
+    /**
+     * Local epoch day of an instant in the given time zone
+     */
+    public static long fromMillis(long millis, TimeZone timeZone) {
+        return floorDiv(millis + timeZone.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Today as local epoch day
+     */
+    public static long today() {
+        return fromMillis(System.currentTimeMillis());
+    }
+
+    /**
+     * Convert local wall time (millis since epoch, without offset) into an instant
+     * Times skipped by a DST gap are moved forward, as Calendar does
+     */
+    public static long localToMillis(long localMillis, TimeZone timeZone) {
+        int offset = timeZone.getOffset(localMillis - timeZone.getRawOffset());
+        long millis = localMillis - offset;
+
+        int actualOffset = timeZone.getOffset(millis);
+        if (actualOffset != offset) {
+            millis = localMillis - actualOffset;
+        }
+
+        return millis;
+    }
+
+    public static int pack(int year, int month, int day) {
+        return (year << 9) | (month << 5) | day;
+    }
+
+    public static int year(int yearMonthDay) {
+        return yearMonthDay >> 9;
+    }
+
+    public static int month(int yearMonthDay) {
+        return (yearMonthDay >> 5) & 0xF;
+    }
+
+    public static int day(int yearMonthDay) {
+        return yearMonthDay & 0x1F;
+    }
+
+    /**
+     * Day of week of an epoch day (1 = Sunday ... 7 = Saturday, as in Calendar)
+     */
+    public static int dayOfWeek(long epochDay) {
+        /* 1970-01-01 was a Thursday */
+        return (int) floorMod(epochDay + 4, 7) + 1;
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Current default time zone, the same instance until its ID changes
+     * (so caches built for a zone can compare it by identity)
+     */
+    static TimeZone getDefaultTimeZone() {
+        TimeZone current = TimeZone.getDefault();
+        TimeZone timeZone = defaultTimeZone;
+
+        if (timeZone == null || !timeZone.getID().equals(current.getID())) {
+            defaultTimeZone = current;
+            return current;
+        }
+
+        return timeZone;
+    }
+
+    static void resetDefaultTimeZone() {
+        defaultTimeZone = null;
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+
+        return q;
+    }
+
+    static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
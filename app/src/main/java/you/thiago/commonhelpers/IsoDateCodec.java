@@ -0,0 +1,250 @@
+package you.thiago.commonhelpers;
+
+import java.util.TimeZone;
+
+/**
+ * Hand written codec for DateHelper.ISO_DATE ("yyyy-MM-dd") and
+ * DateHelper.ISO_DATETIME ("yyyy-MM-dd HH:mm:ss")
+ *
+ * Values are read from any CharSequence into epoch millis and written into
+ * caller buffers, without Date, Calendar or SimpleDateFormat. Like
+ * SimpleDateFormat, trailing text after the layout is ignored and the default
+ * time zone is used unless another one is given. Invalid dates (2020-02-30)
+ * are rejected instead of rolled over.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class IsoDateCodec {
+
+    /**
+     * Returned when the value does not follow the layout or holds an invalid date
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    public static final int DATE_LENGTH = 10;
+    public static final int DATETIME_LENGTH = 19;
+
+    /**
+     * Supported years (SimpleDateFormat switches to the Julian calendar before 1582)
+     */
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+
+    /**
+     * Scratch buffer of the current thread for the String/StringBuilder variants
+     */
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[DATETIME_LENGTH];
+        }
+    };
+
+    private IsoDateCodec() {}
+
+    /**
+     * Check if pattern is handled by this codec
+     */
+    public static boolean supports(String pattern) {
+        return DateHelper.ISO_DATETIME.equals(pattern) || DateHelper.ISO_DATE.equals(pattern);
+    }
+
+    /**
+     * Parse value with ISO_DATE or ISO_DATETIME pattern
+     */
+    public static long parse(CharSequence value, String pattern) {
+        return parse(value, pattern, EpochDays.getDefaultTimeZone());
+    }
+
+    public static long parse(CharSequence value, String pattern, TimeZone timeZone) {
+        if (DateHelper.ISO_DATETIME.equals(pattern)) {
+            return parseDateTime(value, timeZone);
+        }
+
+        return parseDate(value, timeZone);
+    }
+
+    /**
+     * Parse "yyyy-MM-dd" into epoch millis (start of day)
+     */
+    public static long parseDate(CharSequence value) {
+        return parseDate(value, EpochDays.getDefaultTimeZone());
+    }
+
+    public static long parseDate(CharSequence value, TimeZone timeZone) {
+        long epochDay = parseEpochDay(value);
+        if (epochDay == INVALID) {
+            return INVALID;
+        }
+
+        return EpochDays.localToMillis(epochDay * EpochDays.MILLIS_PER_DAY, timeZone);
+    }
+
+    /**
+     * Parse "yyyy-MM-dd HH:mm:ss" into epoch millis
+     */
+    public static long parseDateTime(CharSequence value) {
+        return parseDateTime(value, EpochDays.getDefaultTimeZone());
+    }
+
+    public static long parseDateTime(CharSequence value, TimeZone timeZone) {
+        if (value == null || value.length() < DATETIME_LENGTH || value.charAt(10) != ' ' || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            return INVALID;
+        }
+
+        long epochDay = parseEpochDay(value);
+        int hour = digits(value, 11);
+        int minute = digits(value, 14);
+        int second = digits(value, 17);
+
+        if (epochDay == INVALID || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+
+        long localMillis = epochDay * EpochDays.MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * 1000L;
+
+        return EpochDays.localToMillis(localMillis, timeZone);
+    }
+
+    /**
+     * Parse "yyyy-MM-dd" prefix into epoch day
+     */
+    public static long parseEpochDay(CharSequence value) {
+        if (value == null || value.length() < DATE_LENGTH || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return INVALID;
+        }
+
+        int high = digits(value, 0);
+        int low = digits(value, 2);
+        int month = digits(value, 5);
+        int day = digits(value, 8);
+
+        if (high < 0 || low < 0 || month < 1 || month > 12 || day < 1) {
+            return INVALID;
+        }
+
+        int year = high * 100 + low;
+        if (year < MIN_YEAR || day > EpochDays.lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+
+        return EpochDays.of(year, month, day);
+    }
+
+    /**
+     * Write "yyyy-MM-dd" into buffer
+     * @return chars written or -1 if year is out of the supported range
+     */
+    public static int formatDate(long millis, char[] buffer, int offset) {
+        return formatDate(millis, EpochDays.getDefaultTimeZone(), buffer, offset);
+    }
+
+    public static int formatDate(long millis, TimeZone timeZone, char[] buffer, int offset) {
+        return writeEpochDay(EpochDays.fromMillis(millis, timeZone), buffer, offset);
+    }
+
+    /**
+     * Write "yyyy-MM-dd HH:mm:ss" into buffer
+     * @return chars written or -1 if year is out of the supported range
+     */
+    public static int formatDateTime(long millis, char[] buffer, int offset) {
+        return formatDateTime(millis, EpochDays.getDefaultTimeZone(), buffer, offset);
+    }
+
+    public static int formatDateTime(long millis, TimeZone timeZone, char[] buffer, int offset) {
+        long localMillis = millis + timeZone.getOffset(millis);
+        long epochDay = EpochDays.floorDiv(localMillis, EpochDays.MILLIS_PER_DAY);
+
+        if (writeEpochDay(epochDay, buffer, offset) < 0) {
+            return -1;
+        }
+
+        int secondOfDay = (int) (EpochDays.floorMod(localMillis, EpochDays.MILLIS_PER_DAY) / 1000);
+
+        buffer[offset + 10] = ' ';
+        write2(secondOfDay / 3600, buffer, offset + 11);
+        buffer[offset + 13] = ':';
+        write2(secondOfDay / 60 % 60, buffer, offset + 14);
+        buffer[offset + 16] = ':';
+        write2(secondOfDay % 60, buffer, offset + 17);
+
+        return DATETIME_LENGTH;
+    }
+
+    /**
+     * Append value formatted with ISO_DATE or ISO_DATETIME pattern
+     * @return false if year is out of the supported range (nothing is appended)
+     */
+    public static boolean append(long millis, String pattern, StringBuilder out) {
+        return append(millis, pattern, EpochDays.getDefaultTimeZone(), out);
+    }
+
+    public static boolean append(long millis, String pattern, TimeZone timeZone, StringBuilder out) {
+        char[] buffer = BUFFER.get();
+
+        int length = DateHelper.ISO_DATETIME.equals(pattern)
+                ? formatDateTime(millis, timeZone, buffer, 0)
+                : formatDate(millis, timeZone, buffer, 0);
+
+        if (length < 0) {
+            return false;
+        }
+
+        out.append(buffer, 0, length);
+        return true;
+    }
+
+    /**
+     * Format value with ISO_DATE or ISO_DATETIME pattern
+     * @return formatted string or null if year is out of the supported range
+     */
+    public static String format(long millis, String pattern) {
+        return format(millis, pattern, EpochDays.getDefaultTimeZone());
+    }
+
+    public static String format(long millis, String pattern, TimeZone timeZone) {
+        char[] buffer = BUFFER.get();
+
+        int length = DateHelper.ISO_DATETIME.equals(pattern)
+                ? formatDateTime(millis, timeZone, buffer, 0)
+                : formatDate(millis, timeZone, buffer, 0);
+
+        return length >= 0 ? new String(buffer, 0, length) : null;
+    }
+
+    private static int writeEpochDay(long epochDay, char[] buffer, int offset) {
+        int ymd = EpochDays.toYearMonthDay(epochDay);
+        int year = EpochDays.year(ymd);
+
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return -1;
+        }
+
+        write2(year / 100, buffer, offset);
+        write2(year % 100, buffer, offset + 2);
+        buffer[offset + 4] = '-';
+        write2(EpochDays.month(ymd), buffer, offset + 5);
+        buffer[offset + 7] = '-';
+        write2(EpochDays.day(ymd), buffer, offset + 8);
+
+        return DATE_LENGTH;
+    }
+
+    private static void write2(int value, char[] buffer, int offset) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Read two digits at index or -1
+     */
+    private static int digits(CharSequence value, int index) {
+        int high = value.charAt(index) - '0';
+        int low = value.charAt(index + 1) - '0';
+
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+
+        return high * 10 + low;
+    }
+}
@@ -0,0 +1,589 @@
+package you.thiago.commonhelpers;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Binary (MessagePack) encoding of JsonHelper data, for offline queues
+ *
+ * Strings are length prefixed UTF-8 and bitmaps kept with setStreamBitmaps()
+ * are stored as the raw image bytes ImageComponent encodes instead of base64.
+ * Decoded byte blobs read as base64 strings (optString) and are streamed as
+ * base64 by writeTo(), so the decoded helper sends the same data as the original one.
+ *
+ * Usage:
+ *  byte[] data = JsonBinaryCodec.encode(json);
+ *  JsonHelper copy = JsonBinaryCodec.decode(data);
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class JsonBinaryCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Max nesting accepted by decode()
+     */
+    private static final int MAX_DEPTH = 512;
+
+    /**
+     * Larger strings and blobs are not allocated up front from their header size
+     */
+    private static final int MAX_TRUSTED_SIZE = 64 * 1024;
+
+    @NonNull
+    public static byte[] encode(@NonNull JSONObject json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            encode(json, out);
+        } catch (IOException e) {
+            /* not thrown by ByteArrayOutputStream */
+            throw new IllegalStateException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode into stream (not closed)
+     */
+    public static void encode(@NonNull JSONObject json, @NonNull OutputStream out) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.value(json);
+        encoder.flush();
+    }
+
+    @NonNull
+    public static JsonHelper decode(@NonNull byte[] data) throws IOException {
+        return decode(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Decode object from stream (not closed)
+     * @throws IOException if data is truncated or not an encoded object
+     */
+    @NonNull
+    public static JsonHelper decode(@NonNull InputStream in) throws IOException {
+        Decoder decoder = new Decoder(in);
+        int type = decoder.readByte();
+
+        int size = decoder.mapSize(type);
+        if (size < 0) {
+            throw new IOException("Encoded data is not an object");
+        }
+
+        JsonHelper json = new JsonHelper();
+        decoder.readMap(json, size, 0);
+
+        return json;
+    }
+
+    private static class Encoder {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int length;
+
+        private Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        private void value(Object value) throws IOException {
+            if (value == null || value == JSONObject.NULL) {
+                write(0xc0);
+            } else if (value instanceof String) {
+                string((String) value);
+            } else if (value instanceof Boolean) {
+                write((Boolean) value ? 0xc3 : 0xc2);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                integer(((Number) value).longValue());
+            } else if (value instanceof Float) {
+                ensureCapacity(5);
+                buffer[length++] = (byte) 0xca;
+                writeInt(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Number) {
+                ensureCapacity(9);
+                buffer[length++] = (byte) 0xcb;
+                writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                header(object.length(), 0x80, 0xde, 0xdf);
+
+                Iterator<String> keys = object.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    string(key);
+                    value(object.opt(key));
+                }
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                header(array.length(), 0x90, 0xdc, 0xdd);
+
+                for (int i = 0; i < array.length(); i++) {
+                    value(array.opt(i));
+                }
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                header(collection.size(), 0x90, 0xdc, 0xdd);
+
+                for (Object item : collection) {
+                    value(item);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                header(map.size(), 0x80, 0xde, 0xdf);
+
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    string(String.valueOf(entry.getKey()));
+                    value(entry.getValue());
+                }
+            } else if (value instanceof NumericArray) {
+                NumericArray array = (NumericArray) value;
+                header(array.length(), 0x90, 0xdc, 0xdd);
+
+                if (array.ints != null) {
+                    for (int item : array.ints) {
+                        integer(item);
+                    }
+                } else {
+                    for (double item : array.doubles) {
+                        ensureCapacity(9);
+                        buffer[length++] = (byte) 0xcb;
+                        writeLong(Double.doubleToLongBits(item));
+                    }
+                }
+            } else if (value instanceof JsonBlob) {
+                byte[] bytes = ((JsonBlob) value).bytes;
+                binary(bytes, bytes.length);
+            } else if (value instanceof JsonBitmap) {
+                /* same image bytes as the base64 text of JsonHelper */
+                byte[] image = Base64.decode(value.toString(), Base64.DEFAULT);
+                binary(image, image.length);
+            } else {
+                string(value.toString());
+            }
+        }
+
+        private void integer(long value) throws IOException {
+            ensureCapacity(9);
+
+            if (value >= -32 && value <= 127) {
+                buffer[length++] = (byte) value;
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                buffer[length++] = (byte) 0xd0;
+                buffer[length++] = (byte) value;
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                buffer[length++] = (byte) 0xd1;
+                writeShort((int) value);
+            } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                buffer[length++] = (byte) 0xd2;
+                writeInt((int) value);
+            } else {
+                buffer[length++] = (byte) 0xd3;
+                writeLong(value);
+            }
+        }
+
+        /**
+         * UTF-8 string, encoded straight into the buffer
+         */
+        private void string(String value) throws IOException {
+            int count = value.length();
+            int size = 0;
+
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+
+                if (c < 0x80) {
+                    size++;
+                } else if (c < 0x800) {
+                    size += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    size += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    size++;
+                } else {
+                    size += 3;
+                }
+            }
+
+            ensureCapacity(5);
+            if (size < 32) {
+                buffer[length++] = (byte) (0xa0 | size);
+            } else if (size <= 0xff) {
+                buffer[length++] = (byte) 0xd9;
+                buffer[length++] = (byte) size;
+            } else if (size <= 0xffff) {
+                buffer[length++] = (byte) 0xda;
+                writeShort(size);
+            } else {
+                buffer[length++] = (byte) 0xdb;
+                writeInt(size);
+            }
+
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+                ensureCapacity(4);
+
+                if (c < 0x80) {
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xc0 | (c >> 6));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    /* unpaired surrogate, replaced like String.getBytes() does */
+                    buffer[length++] = '?';
+                } else {
+                    buffer[length++] = (byte) (0xe0 | (c >> 12));
+                    buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void binary(byte[] bytes, int count) throws IOException {
+            ensureCapacity(5);
+
+            if (count <= 0xff) {
+                buffer[length++] = (byte) 0xc4;
+                buffer[length++] = (byte) count;
+            } else if (count <= 0xffff) {
+                buffer[length++] = (byte) 0xc5;
+                writeShort(count);
+            } else {
+                buffer[length++] = (byte) 0xc6;
+                writeInt(count);
+            }
+
+            flushBuffer();
+            out.write(bytes, 0, count);
+        }
+
+        /**
+         * Map or array header
+         */
+        private void header(int size, int fixType, int type16, int type32) throws IOException {
+            ensureCapacity(5);
+
+            if (size < 16) {
+                buffer[length++] = (byte) (fixType | size);
+            } else if (size <= 0xffff) {
+                buffer[length++] = (byte) type16;
+                writeShort(size);
+            } else {
+                buffer[length++] = (byte) type32;
+                writeInt(size);
+            }
+        }
+
+        private void writeShort(int value) {
+            buffer[length++] = (byte) (value >> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            buffer[length++] = (byte) (value >> 24);
+            buffer[length++] = (byte) (value >> 16);
+            buffer[length++] = (byte) (value >> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >> 32));
+            writeInt((int) value);
+        }
+
+        private void write(int b) throws IOException {
+            ensureCapacity(1);
+            buffer[length++] = (byte) b;
+        }
+
+        private void ensureCapacity(int count) throws IOException {
+            if (buffer.length - length < count) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+
+        private void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+    }
+
+    private static class Decoder {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        private Decoder(InputStream in) {
+            this.in = in;
+        }
+
+        private Object readValue(int depth) throws IOException {
+            int type = readByte();
+
+            if (type <= 0x7f) {
+                return type;
+            } else if (type >= 0xe0) {
+                return (int) (byte) type;
+            }
+
+            int size = mapSize(type);
+            if (size >= 0) {
+                checkDepth(depth);
+                JSONObject object = new JSONObject();
+                readMap(object, size, depth + 1);
+                return object;
+            }
+
+            size = arraySize(type);
+            if (size >= 0) {
+                checkDepth(depth);
+                JSONArray array = new JSONArray();
+
+                for (int i = 0; i < size; i++) {
+                    array.put(readValue(depth + 1));
+                }
+
+                return array;
+            }
+
+            size = stringSize(type);
+            if (size >= 0) {
+                return readString(size);
+            }
+
+            switch (type) {
+                case 0xc0:
+                    return JSONObject.NULL;
+                case 0xc2:
+                    return Boolean.FALSE;
+                case 0xc3:
+                    return Boolean.TRUE;
+                case 0xc4:
+                    return readBlob(readByte());
+                case 0xc5:
+                    return readBlob(readShort());
+                case 0xc6:
+                    return readBlob(readSize());
+                case 0xca:
+                    return Float.intBitsToFloat(readInt());
+                case 0xcb:
+                    return Double.longBitsToDouble(readLong());
+                case 0xcc:
+                    return readByte();
+                case 0xcd:
+                    return readShort();
+                case 0xce:
+                    return number(readInt() & 0xffffffffL);
+                case 0xcf:
+                    long unsigned = readLong();
+                    return unsigned >= 0 ? number(unsigned) : (Object) ((unsigned >>> 1) * 2.0);
+                case 0xd0:
+                    return (int) (byte) readByte();
+                case 0xd1:
+                    return (int) (short) readShort();
+                case 0xd2:
+                    return readInt();
+                case 0xd3:
+                    return number(readLong());
+                default:
+                    throw new IOException("Unsupported type 0x" + Integer.toHexString(type));
+            }
+        }
+
+        private void readMap(JSONObject object, int size, int depth) throws IOException {
+            for (int i = 0; i < size; i++) {
+                int keyType = readByte();
+                int keySize = stringSize(keyType);
+
+                if (keySize < 0) {
+                    throw new IOException("Object key is not a string");
+                }
+
+                String key = readString(keySize);
+
+                try {
+                    object.put(key, readValue(depth));
+                } catch (JSONException e) {
+                    throw new IOException(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Map size of type, -1 if type is not a map
+         */
+        private int mapSize(int type) throws IOException {
+            if ((type & 0xf0) == 0x80) {
+                return type & 0x0f;
+            } else if (type == 0xde) {
+                return readShort();
+            } else if (type == 0xdf) {
+                return readSize();
+            }
+
+            return -1;
+        }
+
+        private int arraySize(int type) throws IOException {
+            if ((type & 0xf0) == 0x90) {
+                return type & 0x0f;
+            } else if (type == 0xdc) {
+                return readShort();
+            } else if (type == 0xdd) {
+                return readSize();
+            }
+
+            return -1;
+        }
+
+        private int stringSize(int type) throws IOException {
+            if ((type & 0xe0) == 0xa0) {
+                return type & 0x1f;
+            } else if (type == 0xd9) {
+                return readByte();
+            } else if (type == 0xda) {
+                return readShort();
+            } else if (type == 0xdb) {
+                return readSize();
+            }
+
+            return -1;
+        }
+
+        private static Object number(long value) {
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+
+        private static void checkDepth(int depth) throws IOException {
+            if (depth >= MAX_DEPTH) {
+                throw new IOException("Nesting too deep");
+            }
+        }
+
+        private String readString(int size) throws IOException {
+            if (size <= limit - position) {
+                String value = new String(buffer, position, size, UTF_8);
+                position += size;
+                return value;
+            }
+
+            return new String(readBytes(size), UTF_8);
+        }
+
+        private JsonBlob readBlob(int size) throws IOException {
+            return new JsonBlob(readBytes(size));
+        }
+
+        private byte[] readBytes(int size) throws IOException {
+            if (size <= MAX_TRUSTED_SIZE) {
+                byte[] bytes = new byte[size];
+                int read = 0;
+
+                while (read < size) {
+                    if (position == limit) {
+                        fill();
+                    }
+
+                    int count = Math.min(size - read, limit - position);
+                    System.arraycopy(buffer, position, bytes, read, count);
+                    position += count;
+                    read += count;
+                }
+
+                return bytes;
+            }
+
+            /* size comes from the data, grow with the bytes really read so corrupt sizes end in EOFException */
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_TRUSTED_SIZE);
+            int remaining = size;
+
+            while (remaining > 0) {
+                if (position == limit) {
+                    fill();
+                }
+
+                int count = Math.min(remaining, limit - position);
+                bytes.write(buffer, position, count);
+                position += count;
+                remaining -= count;
+            }
+
+            return bytes.toByteArray();
+        }
+
+        private int readByte() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+
+            return buffer[position++] & 0xff;
+        }
+
+        private int readShort() throws IOException {
+            return (readByte() << 8) | readByte();
+        }
+
+        private int readInt() throws IOException {
+            return (readShort() << 16) | readShort();
+        }
+
+        /**
+         * Unsigned 32 bits size (limited to int)
+         */
+        private int readSize() throws IOException {
+            int size = readInt();
+
+            if (size < 0) {
+                throw new IOException("Size too large");
+            }
+
+            return size;
+        }
+
+        private long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+        }
+
+        private void fill() throws IOException {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package you.thiago.commonhelpers;
+
+import android.graphics.Bitmap;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bitmap kept inside a JsonHelper until it is written
+ *
+ * JsonStreamWriter compresses it straight into the output as base64, so the
+ * image never exists as a whole String. toString() (JSONObject.toString(),
+ * binary codec) returns ImageComponent.getBitmapBase64() text.
+ *
+ * ImageComponent's encoding is not part of its API, so the first bitmap of
+ * each source size and params is written from ImageComponent's String and
+ * compared with the streamed encoding. Later ones are streamed only when both
+ * were byte-identical, otherwise they keep using ImageComponent.
+ *
+ * The bitmap must not be recycled before the json is written.
+ */
+final class JsonBitmap {
+
+    /**
+     * ImageComponent default size and quality
+     */
+    static final int DEFAULT_PARAMS = -1;
+
+    /**
+     * Stream encodings (Base64 flags), or why the bitmap is not streamed
+     */
+    static final int NO_WRAP = Base64.NO_WRAP;
+    static final int WRAP = Base64.DEFAULT;
+    static final int UNCHECKED = -1;
+    static final int NOT_STREAMED = -2;
+
+    private static final Bitmap.CompressFormat FORMAT = Bitmap.CompressFormat.JPEG;
+    private static final int DEFAULT_QUALITY = 100;
+
+    /**
+     * Checked encodings by source size and params (few entries: one per camera or screen size)
+     */
+    private static final int MAX_ENCODINGS = 64;
+    private static final ConcurrentHashMap<String, Integer> ENCODINGS = new ConcurrentHashMap<>();
+
+    final Bitmap bitmap;
+    final int width;
+    final int height;
+    final int quality;
+
+    JsonBitmap(@NonNull Bitmap bitmap) {
+        this(bitmap, DEFAULT_PARAMS, DEFAULT_PARAMS, DEFAULT_PARAMS);
+    }
+
+    JsonBitmap(@NonNull Bitmap bitmap, int width, int height, int quality) {
+        this.bitmap = bitmap;
+        this.width = width;
+        this.height = height;
+        this.quality = quality;
+    }
+
+    /**
+     * Base64 flags to stream this bitmap with, UNCHECKED or NOT_STREAMED
+     */
+    int getStreamEncoding() {
+        Integer encoding = ENCODINGS.get(getKey());
+        return encoding != null ? encoding : UNCHECKED;
+    }
+
+    /**
+     * Compare streamed encoding with ImageComponent's text of this bitmap
+     * (builds the compressed bytes once, only for unchecked sizes)
+     */
+    void checkStreamEncoding(@NonNull String expected) {
+        int encoding = NOT_STREAMED;
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            compress(out);
+            byte[] bytes = out.toByteArray();
+
+            if (expected.equals(Base64.encodeToString(bytes, NO_WRAP))) {
+                encoding = NO_WRAP;
+            } else if (expected.equals(Base64.encodeToString(bytes, WRAP))) {
+                encoding = WRAP;
+            } else {
+                Log.e(getClass().getSimpleName(), "Streamed encoding differs from ImageComponent, not streaming " + getKey());
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        if (ENCODINGS.size() >= MAX_ENCODINGS) {
+            ENCODINGS.clear();
+        }
+
+        ENCODINGS.put(getKey(), encoding);
+    }
+
+    /**
+     * Compress bitmap into stream, scaled to width x height when given
+     */
+    void compress(OutputStream out) throws IOException {
+        Bitmap source = bitmap;
+
+        if (width > 0 && height > 0 && (bitmap.getWidth() != width || bitmap.getHeight() != height)) {
+            source = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        }
+
+        try {
+            if (!source.compress(FORMAT, quality == DEFAULT_PARAMS ? DEFAULT_QUALITY : quality, out)) {
+                throw new IOException("Unable to compress bitmap " + getKey());
+            }
+        } finally {
+            if (source != bitmap) {
+                source.recycle();
+            }
+        }
+    }
+
+    private String getKey() {
+        return bitmap.getWidth() + "x" + bitmap.getHeight() + " " + width + "x" + height + " q" + quality;
+    }
+
+    /**
+     * Base64 image as ImageComponent.getBitmapBase64() builds it ("" when encoding fails)
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        String value = null;
+
+        try {
+            value = quality == DEFAULT_PARAMS
+                    ? JsonHelper.getBitmapBase64(bitmap)
+                    : JsonHelper.getBitmapBase64(bitmap, width, height, quality);
+        } catch (RuntimeException e) {
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        if (value == null) {
+            Log.e(getClass().getSimpleName(), "Unable to encode bitmap " + bitmap.getWidth() + "x" + bitmap.getHeight());
+            return "";
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package you.thiago.commonhelpers;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Raw bytes kept inside a JsonHelper (e.g. images decoded by JsonBinaryCodec)
+ *
+ * JsonStreamWriter writes them as base64 without building the String,
+ * toString() and optString() return the base64 text.
+ */
+final class JsonBlob {
+
+    final byte[] bytes;
+
+    JsonBlob(@NonNull byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    }
+}
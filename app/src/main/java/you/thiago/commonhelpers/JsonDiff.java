@@ -0,0 +1,333 @@
+package you.thiago.commonhelpers;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Merge patch (RFC 7396) diff between two json snapshots
+ *
+ * diff() emits only changed members: new and changed values, null for removed
+ * keys, nested objects as nested patches and changed arrays as a whole. Every
+ * subtree is hashed once (64 bits, key order independent), so unchanged
+ * subtrees are skipped without walking them again.
+ *
+ * Merge patches cannot set a value to null (null removes the key), such
+ * changes are written as removals. Patches and applied values are deep copies,
+ * so snapshots never share containers with the live records.
+ *
+ * Usage:
+ *  JsonHelper patch = JsonDiff.diff(lastSynced, current);
+ *  if (patch.length() > 0) upload(patch);
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class JsonDiff {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Type tags mixed into hashes
+     */
+    private static final long NULL_HASH = 0x6e756c6cL;
+    private static final long TRUE_HASH = 0x74727565L;
+    private static final long FALSE_HASH = 0x66616c73L;
+    private static final long NUMBER_TAG = 1;
+    private static final long STRING_TAG = 2;
+    private static final long ARRAY_TAG = 3;
+    private static final long OBJECT_TAG = 4;
+
+    /**
+     * Merge patch turning source into target (empty when they are equal)
+     */
+    @NonNull
+    public static JsonHelper diff(@NonNull JSONObject source, @NonNull JSONObject target) {
+        Hasher hasher = new Hasher();
+        JsonHelper patch = new JsonHelper();
+
+        if (hasher.hash(source) != hasher.hash(target)) {
+            diff(source, target, patch, hasher);
+        }
+
+        return patch;
+    }
+
+    /**
+     * Apply merge patch into target (changed in place)
+     * @return target
+     */
+    @NonNull
+    public static JSONObject apply(@NonNull JSONObject target, @NonNull JSONObject patch) {
+        Iterator<String> keys = patch.keys();
+
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = patch.opt(key);
+
+            try {
+                if (value == null || value == JSONObject.NULL) {
+                    target.remove(key);
+                } else if (value instanceof JSONObject) {
+                    Object current = target.opt(key);
+
+                    /* patch objects never hold nulls, start from an empty object */
+                    JSONObject child = current instanceof JSONObject ? (JSONObject) current : new JSONObject();
+                    target.put(key, apply(child, (JSONObject) value));
+                } else {
+                    /* the patch keeps its own containers */
+                    target.put(key, copy(value));
+                }
+            } catch (JSONException e) {
+                Log.e(JsonDiff.class.getSimpleName(), e.getMessage(), e);
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Structural 64 bits hash of a json value (equal values have equal hashes)
+     */
+    public static long hash(Object value) {
+        return new Hasher().hash(value);
+    }
+
+    private static void diff(JSONObject source, JSONObject target, JSONObject patch, Hasher hasher) {
+        try {
+            Iterator<String> keys = source.keys();
+
+            while (keys.hasNext()) {
+                String key = keys.next();
+
+                if (!target.has(key) || target.isNull(key)) {
+                    if (!source.isNull(key)) {
+                        patch.put(key, JSONObject.NULL);
+                    }
+                }
+            }
+
+            keys = target.keys();
+
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object to = target.opt(key);
+
+                if (to == null || to == JSONObject.NULL) {
+                    continue;
+                }
+
+                Object from = source.opt(key);
+
+                if (from == null || hasher.hash(from) != hasher.hash(to)) {
+                    if (from instanceof JSONObject && to instanceof JSONObject) {
+                        JsonHelper child = new JsonHelper();
+                        diff((JSONObject) from, (JSONObject) to, child, hasher);
+
+                        /* empty when only null members changed */
+                        if (child.length() > 0) {
+                            patch.put(key, child);
+                        }
+                    } else {
+                        /* later changes of target must not reach the patch */
+                        patch.put(key, copy(to));
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(JsonDiff.class.getSimpleName(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deep copy of containers (JSONObject, JSONArray, collections, maps, numeric arrays),
+     * other values are immutable and kept as they are
+     */
+    private static Object copy(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            JsonHelper copy = new JsonHelper();
+
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                copy.putValue(key, copy(object.opt(key)));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof Map) {
+            JsonHelper copy = new JsonHelper();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.putValue(String.valueOf(entry.getKey()), copy(entry.getValue()));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray copy = new JSONArray();
+
+            for (int i = 0; i < array.length(); i++) {
+                copy.put(copy(array.opt(i)));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof Collection) {
+            JSONArray copy = new JSONArray();
+
+            for (Object item : (Collection<?>) value) {
+                copy.put(copy(item));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof NumericArray) {
+            NumericArray array = (NumericArray) value;
+            return array.ints != null ? new NumericArray(array.ints.clone()) : new NumericArray(array.doubles.clone());
+        }
+
+        return value;
+    }
+
+    /**
+     * Memoized subtree hashes of a single diff
+     */
+    private static class Hasher {
+        private final IdentityHashMap<Object, Long> hashes = new IdentityHashMap<>();
+
+        private long hash(Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                return NULL_HASH;
+            }
+
+            if (value instanceof Boolean) {
+                return (Boolean) value ? TRUE_HASH : FALSE_HASH;
+            }
+
+            if (value instanceof Number) {
+                return hashNumber((Number) value);
+            }
+
+            if (value instanceof String) {
+                return hashString((String) value);
+            }
+
+            boolean container = value instanceof JSONObject || value instanceof JSONArray
+                    || value instanceof Collection || value instanceof Map || value instanceof NumericArray;
+
+            if (!container) {
+                /* bitmaps, blobs and other values compare by their json text */
+                return hashString(value.toString());
+            }
+
+            Long cached = hashes.get(value);
+            if (cached != null) {
+                return cached;
+            }
+
+            long hash;
+
+            if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                hash = OBJECT_TAG;
+
+                Iterator<String> keys = object.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+
+                    /* sum of members keeps the hash independent of key order */
+                    hash += mix(hashString(key) * 31 + hash(object.opt(key)));
+                }
+            } else if (value instanceof Map) {
+                hash = OBJECT_TAG;
+
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    hash += mix(hashString(String.valueOf(entry.getKey())) * 31 + hash(entry.getValue()));
+                }
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                hash = ARRAY_TAG;
+
+                for (int i = 0; i < array.length(); i++) {
+                    hash = (hash ^ hash(array.opt(i))) * FNV_PRIME;
+                }
+            } else if (value instanceof NumericArray) {
+                NumericArray array = (NumericArray) value;
+                hash = ARRAY_TAG;
+
+                /* same hash as the boxed JSONArray */
+                for (int i = 0, count = array.length(); i < count; i++) {
+                    long bits = array.ints != null ? array.ints[i] : numberBits(array.doubles[i]);
+                    hash = (hash ^ mix(bits ^ NUMBER_TAG << 56)) * FNV_PRIME;
+                }
+            } else {
+                hash = ARRAY_TAG;
+
+                for (Object item : (Collection<?>) value) {
+                    hash = (hash ^ hash(item)) * FNV_PRIME;
+                }
+            }
+
+            hash = mix(hash);
+            hashes.put(value, hash);
+
+            return hash;
+        }
+
+        /**
+         * Integral numbers hash alike whatever their type (1 and 1.0 print the same)
+         */
+        private static long hashNumber(Number value) {
+            long bits;
+
+            if (value instanceof Double || value instanceof Float) {
+                bits = numberBits(value.doubleValue());
+            } else {
+                bits = value.longValue();
+            }
+
+            return mix(bits ^ NUMBER_TAG << 56);
+        }
+
+        private static long numberBits(double value) {
+            return value == (long) value ? (long) value : Double.doubleToLongBits(value);
+        }
+
+        private static long hashString(String value) {
+            long hash = FNV_OFFSET ^ STRING_TAG;
+
+            for (int i = 0, count = value.length(); i < count; i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+
+            return mix(hash);
+        }
+
+        /**
+         * 64 bits finalizer (MurmurHash3 fmix64)
+         */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93e1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package you.thiago.commonhelpers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Field written by JsonModelWriter
+ *
+ * Usage:
+ *  @JsonField("id") int id;
+ *  @JsonField(value = "parent_id", mode = JsonField.INT_NULL) int parentId;
+ *  @JsonField(value = "birth", mode = JsonField.NON_NULL, pattern = DateHelper.ISO_DATE) Date birth;
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface JsonField {
+
+    /**
+     * Same as JsonHelper.put()
+     */
+    int DEFAULT = 0;
+
+    /**
+     * Same as JsonHelper.putNonNull() (skip null, empty and values <= 0)
+     */
+    int NON_NULL = 1;
+
+    /**
+     * Same as JsonHelper.putIntNull() (null for values <= 0), numeric fields only
+     */
+    int INT_NULL = 2;
+
+    /**
+     * Same as JsonHelper.putStringNull() (null for empty strings), String fields only
+     */
+    int STRING_NULL = 3;
+
+    /**
+     * Json name (field name when empty)
+     */
+    String value() default "";
+
+    int mode() default DEFAULT;
+
+    /**
+     * Date pattern ("yyyy-MM-dd HH:mm:ss" when empty)
+     */
+    String pattern() default "";
+}
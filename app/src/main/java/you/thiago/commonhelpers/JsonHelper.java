@@ -9,10 +9,15 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Locale;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
 
 import you.thiago.imagehelper.ImageComponent;
 
@@ -21,7 +26,17 @@ public class JsonHelper extends JSONObject {
 
     private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
-    private SimpleDateFormat dateFormatter;
+    /**
+     * Min records per parallel chunk of arrayOf() and writeArrayOf()
+     */
+    private static final int ARRAY_CHUNK_SIZE = 1024;
+
+    /**
+     * Optional cache of encoded bitmaps
+     */
+    private static volatile BitmapEncodeCache bitmapCache;
+
+    private boolean streamBitmaps;
 
     public JsonHelper() {
         super();
@@ -32,10 +47,223 @@ public class JsonHelper extends JSONObject {
     }
 
     /**
-     * Init date formatter
+     * Convert a record into a json value (JsonHelper, JSONArray, String, Number, Boolean...)
+     * Must be thread safe: records are converted in parallel.
+     */
+    public interface Mapper<T> {
+        Object map(T item);
+    }
+
+    /**
+     * Build json array of a large list, converting records in parallel chunks
+     * Records holding putArray() values must be written with JsonStreamWriter or writeArrayOf()
+     */
+    @NonNull
+    public static <T> JSONArray arrayOf(@NonNull List<T> list, @NonNull final Mapper<T> mapper) {
+        final List<T> items = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        final Object[] values = new Object[items.size()];
+
+        ParallelTasks.forEachChunk(values.length, ARRAY_CHUNK_SIZE, new ParallelTasks.Chunk() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = mapper.map(items.get(i));
+                }
+            }
+        });
+
+        JSONArray array = new JSONArray();
+        for (Object value : values) {
+            array.put(value);
+        }
+
+        return array;
+    }
+
+    /**
+     * Write json array of a large list
+     *
+     * Records are converted and serialized in parallel, one window of a chunk per
+     * core at a time, and each window is written in order before the next one starts,
+     * so only one window of text is kept in memory. On a single core records are
+     * written straight into writer.
+     */
+    public static <T> void writeArrayOf(@NonNull List<T> list, @NonNull final Mapper<T> mapper, @NonNull Writer writer) throws IOException {
+        final List<T> items = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        int parallelism = ParallelTasks.getParallelism();
+
+        if (parallelism == 1) {
+            JsonStreamWriter stream = new JsonStreamWriter(writer).beginArray();
+
+            for (T item : items) {
+                stream.value(mapper.map(item));
+            }
+
+            stream.endArray().flush();
+            return;
+        }
+
+        int windowSize = ARRAY_CHUNK_SIZE * parallelism;
+        final String[] chunks = new String[windowSize];
+        boolean first = true;
+
+        writer.write('[');
+
+        for (int window = 0; window < items.size(); window += windowSize) {
+            final int windowStart = window;
+            int size = Math.min(windowSize, items.size() - window);
+
+            ParallelTasks.forEachChunk(size, ARRAY_CHUNK_SIZE, new ParallelTasks.Chunk() {
+                @Override
+                public void run(int from, int to) {
+                    StringWriter chunk = new StringWriter();
+                    JsonStreamWriter stream = new JsonStreamWriter(chunk).beginArray();
+
+                    for (int i = windowStart + from; i < windowStart + to; i++) {
+                        stream.value(mapper.map(items.get(i)));
+                    }
+
+                    try {
+                        stream.endArray().flush();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+
+                    /* indexed by start within the window, so they are written in order */
+                    chunks[from] = chunk.toString();
+                }
+            });
+
+            for (int i = 0; i < size; i++) {
+                String chunk = chunks[i];
+
+                if (chunk == null) {
+                    continue;
+                }
+
+                chunks[i] = null;
+
+                /* drop brackets of each chunk */
+                if (chunk.length() > 2) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+
+                    writer.write(chunk, 1, chunk.length() - 2);
+                    first = false;
+                }
+            }
+        }
+
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * Remove all values to reuse this instance (keeps map capacity and settings)
+     */
+    @NonNull
+    public JsonHelper reset() {
+        Iterator<String> keys = keys();
+
+        try {
+            while (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } catch (UnsupportedOperationException e) {
+            JSONArray names = names();
+
+            for (int i = 0; names != null && i < names.length(); i++) {
+                remove(names.optString(i));
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Put value as is (used by LazyJsonHelper to keep parsed values)
+     */
+    void putValue(String name, Object value) throws JSONException {
+        super.put(name, value);
+    }
+
+    /**
+     * Write json into writer without building the whole string in memory
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        JsonStreamWriter stream = new JsonStreamWriter(writer);
+        stream.value(this);
+        stream.flush();
+    }
+
+    /**
+     * Write json into stream as UTF-8 without building the whole string in memory
+     */
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        JsonStreamWriter stream = new JsonStreamWriter(out);
+        stream.value(this);
+        stream.flush();
+    }
+
+    /**
+     * Write json as UTF-8, compressed on the fly when larger than threshold
+     * The stream is finished but not closed
+     * @param format CompressedOutputStream.NONE, GZIP or DEFLATE
+     * @return stream with compression stats (ratio, time)
+     */
+    @NonNull
+    public CompressedOutputStream writeTo(@NonNull OutputStream out, int format, int threshold) throws IOException {
+        CompressedOutputStream compressed = new CompressedOutputStream(out, format, threshold);
+
+        writeTo(compressed);
+        compressed.finish();
+
+        return compressed;
+    }
+
+    /**
+     * Compact binary form for storage (see JsonBinaryCodec)
      */
-    private void initDateFormatter(String dateFormat) {
-        this.dateFormatter = new SimpleDateFormat(dateFormat, Locale.getDefault());
+    @NonNull
+    public byte[] toBinary() {
+        return JsonBinaryCodec.encode(this);
+    }
+
+    /**
+     * Read helper stored with toBinary()
+     */
+    @NonNull
+    public static JsonHelper fromBinary(@NonNull byte[] data) throws IOException {
+        return JsonBinaryCodec.decode(data);
+    }
+
+    /**
+     * Keep bitmaps until the json is written, where writeTo() compresses each one straight
+     * into the output as base64 (same text as ImageComponent, see JsonBitmap).
+     * toString() still builds each image String. Bitmaps must not be recycled before the json is written.
+     */
+    @NonNull
+    public JsonHelper setStreamBitmaps(boolean streamBitmaps) {
+        this.streamBitmaps = streamBitmaps;
+        return this;
+    }
+
+    public boolean isStreamBitmaps() {
+        return streamBitmaps;
+    }
+
+    /**
+     * Set cache used to encode bitmaps (null to disable)
+     * Useful when the same bitmap is serialized more than once (retries, several endpoints)
+     */
+    public static void setBitmapCache(BitmapEncodeCache cache) {
+        bitmapCache = cache;
+    }
+
+    public static BitmapEncodeCache getBitmapCache() {
+        return bitmapCache;
     }
 
     @NonNull
@@ -78,7 +306,9 @@ public class JsonHelper extends JSONObject {
     @NonNull
     public JsonHelper put(@NonNull String name, Object value) {
         try {
-            if (value != null) {
+            if (value instanceof LazyJsonHelper) {
+                super.put(name, ((LazyJsonHelper) value).loadAll());
+            } else if (value != null) {
                 super.put(name, value);
             } else {
                 super.put(name, NULL);
@@ -161,8 +391,10 @@ public class JsonHelper extends JSONObject {
     @NonNull
     public JsonHelper put(@NonNull String name, Bitmap value) {
         try {
-            if (value != null) {
-                super.put(name, ImageComponent.getBitmapBase64(value));
+            if (value != null && streamBitmaps) {
+                super.put(name, new JsonBitmap(value));
+            } else if (value != null) {
+                super.put(name, getBitmapBase64(value));
             } else {
                 super.put(name, "");
             }
@@ -177,12 +409,7 @@ public class JsonHelper extends JSONObject {
     public JsonHelper put(@NonNull String name, Date value) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(DEFAULT_DATE_FORMAT);
-                }
-
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, DEFAULT_DATE_FORMAT));
             } else {
                 super.put(name, NULL);
             }
@@ -197,13 +424,7 @@ public class JsonHelper extends JSONObject {
     public JsonHelper put(@NonNull String name, Date value, String pattern) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(DEFAULT_DATE_FORMAT);
-                }
-
-                dateFormatter.applyPattern(pattern);
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, pattern));
             } else {
                 super.put(name, NULL);
             }
@@ -214,17 +435,14 @@ public class JsonHelper extends JSONObject {
         return this;
     }
 
+    /**
+     * Kept for compatibility, dateFormat is not used (pattern is the one applied)
+     */
     @NonNull
     public JsonHelper put(@NonNull String name, Date value, String pattern, String dateFormat) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(dateFormat);
-                }
-
-                dateFormatter.applyPattern(pattern);
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, pattern));
             } else {
                 super.put(name, NULL);
             }
@@ -362,12 +580,7 @@ public class JsonHelper extends JSONObject {
     public JsonHelper putNonNull(@NonNull String name, Date value) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(DEFAULT_DATE_FORMAT);
-                }
-
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, DEFAULT_DATE_FORMAT));
             }
         } catch (JSONException e) {
             Log.e(getClass().getSimpleName(), e.getMessage(), e);
@@ -380,13 +593,7 @@ public class JsonHelper extends JSONObject {
     public JsonHelper putNonNull(@NonNull String name, Date value, String pattern) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(DEFAULT_DATE_FORMAT);
-                }
-
-                dateFormatter.applyPattern(pattern);
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, pattern));
             }
         } catch (JSONException e) {
             Log.e(getClass().getSimpleName(), e.getMessage(), e);
@@ -395,17 +602,14 @@ public class JsonHelper extends JSONObject {
         return this;
     }
 
+    /**
+     * Kept for compatibility, dateFormat is not used (pattern is the one applied)
+     */
     @NonNull
     public JsonHelper putNonNull(@NonNull String name, Date value, String pattern, String dateFormat) {
         try {
             if (value != null) {
-                if (dateFormatter == null) {
-                    initDateFormatter(dateFormat);
-                }
-
-                dateFormatter.applyPattern(pattern);
-                String date = dateFormatter.format(value);
-                super.put(name, date);
+                super.put(name, formatDate(value, pattern));
             }
         } catch (JSONException e) {
             Log.e(getClass().getSimpleName(), e.getMessage(), e);
@@ -417,8 +621,10 @@ public class JsonHelper extends JSONObject {
     @NonNull
     public JsonHelper putNonNull(@NonNull String name, Bitmap value) {
         try {
-            if (value != null) {
-                super.put(name, ImageComponent.getBitmapBase64(value));
+            if (value != null && streamBitmaps) {
+                super.put(name, new JsonBitmap(value));
+            } else if (value != null) {
+                super.put(name, getBitmapBase64(value));
             }
         } catch (JSONException e) {
             Log.e(getClass().getSimpleName(), e.getMessage(), e);
@@ -430,8 +636,10 @@ public class JsonHelper extends JSONObject {
     @NonNull
     public JsonHelper putNonNull(@NonNull String name, Bitmap value, int imgWidth, int imgHeight, int imgQuality) {
         try {
-            if (value != null) {
-                super.put(name, ImageComponent.getBitmapBase64(value, imgWidth, imgHeight, imgQuality));
+            if (value != null && streamBitmaps) {
+                super.put(name, new JsonBitmap(value, imgWidth, imgHeight, imgQuality));
+            } else if (value != null) {
+                super.put(name, getBitmapBase64(value, imgWidth, imgHeight, imgQuality));
             }
         } catch (JSONException e) {
             Log.e(getClass().getSimpleName(), e.getMessage(), e);
@@ -453,6 +661,185 @@ public class JsonHelper extends JSONObject {
         return this;
     }
 
+    /**
+     * Put numeric array kept as double[] until written (no boxing, array is not copied)
+     * Read it with getDoubleArray() / getIntArray(), optJSONArray() returns a boxed copy
+     * Plain JSONObject/JSONArray parents print it as a string, write them with JsonStreamWriter
+     */
+    @NonNull
+    public JsonHelper putArray(@NonNull String name, double[] value) {
+        try {
+            if (value == null) {
+                super.put(name, NULL);
+            } else if (NumericArray.isValid(value)) {
+                super.put(name, new NumericArray(value));
+            } else {
+                throw new JSONException("Forbidden numeric value in array " + name);
+            }
+        } catch (JSONException e) {
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Put numeric array kept as int[] until written (no boxing, array is not copied)
+     */
+    @NonNull
+    public JsonHelper putArray(@NonNull String name, int[] value) {
+        try {
+            super.put(name, value != null ? new NumericArray(value) : NULL);
+        } catch (JSONException e) {
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Read numeric array as double[] (null if missing or not numeric)
+     */
+    public double[] getDoubleArray(@NonNull String name) {
+        Object value = opt(name);
+
+        if (value instanceof NumericArray) {
+            return ((NumericArray) value).toDoubleArray();
+        }
+
+        if (!(value instanceof JSONArray)) {
+            return null;
+        }
+
+        JSONArray array = (JSONArray) value;
+        double[] values = new double[array.length()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.optDouble(i);
+
+            if (Double.isNaN(values[i])) {
+                return null;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Read numeric array as int[] (null if missing or not numeric)
+     */
+    public int[] getIntArray(@NonNull String name) {
+        Object value = opt(name);
+
+        if (value instanceof NumericArray) {
+            return ((NumericArray) value).toIntArray();
+        }
+
+        if (!(value instanceof JSONArray)) {
+            return null;
+        }
+
+        JSONArray array = (JSONArray) value;
+        int[] values = new int[array.length()];
+
+        for (int i = 0; i < values.length; i++) {
+            double number = array.optDouble(i);
+
+            if (Double.isNaN(number)) {
+                return null;
+            }
+
+            values[i] = (int) number;
+        }
+
+        return values;
+    }
+
+    /**
+     * Arrays put with putArray() are returned as a boxed copy
+     */
+    @Override
+    public JSONArray optJSONArray(String name) {
+        Object value = opt(name);
+        return value instanceof NumericArray ? ((NumericArray) value).toJSONArray() : super.optJSONArray(name);
+    }
+
+    @NonNull
+    @Override
+    public JSONArray getJSONArray(@NonNull String name) throws JSONException {
+        Object value = opt(name);
+        return value instanceof NumericArray ? ((NumericArray) value).toJSONArray() : super.getJSONArray(name);
+    }
+
+    @Override
+    public JSONObject accumulate(String name, Object value) throws JSONException {
+        Object current = opt(name);
+
+        if (current instanceof NumericArray) {
+            /* JSONObject would nest it instead of appending to it */
+            super.put(name, ((NumericArray) current).toJSONArray());
+        }
+
+        return super.accumulate(name, value);
+    }
+
+    /**
+     * Same text as JSONObject.toString(), written by JsonStreamWriter
+     * (which also knows primitive arrays, blobs and streamed bitmaps)
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            /* not thrown by StringWriter */
+            throw new IllegalStateException(e);
+        }
+
+        return writer.toString();
+    }
+
+    @Override
+    public String toString(int indentSpaces) throws JSONException {
+        /* JSONStringer does not know primitive arrays, indent a copy with them boxed */
+        return ((JSONObject) boxedCopy(this)).toString(indentSpaces);
+    }
+
+    private static Object boxedCopy(Object value) throws JSONException {
+        if (value instanceof NumericArray) {
+            return ((NumericArray) value).toJSONArray();
+        }
+
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            JSONObject copy = new JSONObject();
+
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                copy.put(key, boxedCopy(object.opt(key)));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray copy = new JSONArray();
+
+            for (int i = 0; i < array.length(); i++) {
+                copy.put(boxedCopy(array.opt(i)));
+            }
+
+            return copy;
+        }
+
+        return value;
+    }
+
     @NonNull
     public JsonHelper putNonNull(@NonNull String name, ArrayList value) {
         try {
@@ -465,4 +852,25 @@ public class JsonHelper extends JSONObject {
 
         return this;
     }
+
+    static String getBitmapBase64(Bitmap value) {
+        BitmapEncodeCache cache = bitmapCache;
+        return cache != null ? cache.getBitmapBase64(value) : ImageComponent.getBitmapBase64(value);
+    }
+
+    static String getBitmapBase64(Bitmap value, int imgWidth, int imgHeight, int imgQuality) {
+        BitmapEncodeCache cache = bitmapCache;
+
+        return cache != null
+                ? cache.getBitmapBase64(value, imgWidth, imgHeight, imgQuality)
+                : ImageComponent.getBitmapBase64(value, imgWidth, imgHeight, imgQuality);
+    }
+
+    /**
+     * Format date with the shared per thread formatters (ISO patterns without formatter)
+     */
+    private static String formatDate(Date value, String pattern) {
+        String date = IsoDateCodec.supports(pattern) ? IsoDateCodec.format(value.getTime(), pattern) : null;
+        return date != null ? date : DateFormatterCache.get(pattern).format(value);
+    }
 }
@@ -0,0 +1,103 @@
+package you.thiago.commonhelpers;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded pool of JsonHelper instances for batch serialization loops
+ *
+ * Released helpers are reset() to default settings and kept with their map
+ * capacity, so serializing many records reuses the same few instances.
+ * Extra released helpers above maxSize are dropped.
+ *
+ * Usage:
+ *  JsonHelper json = pool.acquire();
+ *  try { json.put("id", id).writeTo(out); } finally { pool.release(json); }
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class JsonHelperPool {
+
+    private final ArrayDeque<JsonHelper> pool;
+    private final int maxSize;
+
+    public JsonHelperPool(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+
+        this.maxSize = maxSize;
+        this.pool = new ArrayDeque<>(maxSize);
+    }
+
+    /**
+     * Get an empty helper (pooled one if available)
+     */
+    @NonNull
+    public JsonHelper acquire() {
+        JsonHelper json;
+
+        synchronized (pool) {
+            json = pool.pollLast();
+        }
+
+        return json != null ? json : new JsonHelper();
+    }
+
+    /**
+     * Give helper back to the pool, it must not be used after that
+     * Releasing a helper already in the pool does nothing
+     */
+    public void release(JsonHelper json) {
+        if (json == null) {
+            return;
+        }
+
+        synchronized (pool) {
+            if (contains(json)) {
+                return;
+            }
+        }
+
+        json.reset();
+        json.setStreamBitmaps(false);
+
+        synchronized (pool) {
+            if (pool.size() < maxSize && !contains(json)) {
+                pool.addLast(json);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (pool) {
+            pool.clear();
+        }
+    }
+
+    /**
+     * Helpers waiting in the pool
+     */
+    public int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Identity lookup (pool is small), call holding the pool lock
+     */
+    private boolean contains(JsonHelper json) {
+        for (JsonHelper pooled : pool) {
+            if (pooled == json) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
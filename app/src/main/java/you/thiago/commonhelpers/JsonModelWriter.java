@@ -0,0 +1,524 @@
+package you.thiago.commonhelpers;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writer of models annotated with @JsonField, using the JsonHelper put rules
+ *
+ * Fields, annotations, names, types and put rules are resolved once per class
+ * (of() caches the writer with its Field list, made accessible once). Each call
+ * only reads the resolved fields, primitives through Field.getInt()/getLong()...
+ * without boxing, and dispatches on their precomputed kind.
+ *
+ * Collections holding models write each one with its own writer, both in
+ * toJson() and write().
+ *
+ * Usage:
+ *  JsonHelper json = JsonModelWriter.of(User.class).toJson(user);
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class JsonModelWriter<T> implements JsonHelper.Mapper<T> {
+
+    private static final ConcurrentHashMap<Class<?>, JsonModelWriter<?>> WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Whether collection element classes have @JsonField fields
+     */
+    private static final ConcurrentHashMap<Class<?>, Boolean> MODEL_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * Field kinds
+     */
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int BOOLEAN = 3;
+    private static final int BOXED_NUMBER = 4;
+    private static final int BOXED_DOUBLE = 5;
+    private static final int BOXED_BOOLEAN = 6;
+    private static final int STRING = 7;
+    private static final int DATE = 8;
+    private static final int JSON_ARRAY = 9;
+    private static final int COLLECTION = 10;
+    private static final int BITMAP = 11;
+    private static final int MODEL = 12;
+    private static final int OBJECT = 13;
+
+    private final Property[] properties;
+
+    private JsonModelWriter(Class<T> type) {
+        ArrayList<Property> list = new ArrayList<>();
+
+        /* superclass fields first */
+        ArrayList<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                JsonField annotation = field.getAnnotation(JsonField.class);
+
+                if (annotation != null && !Modifier.isStatic(field.getModifiers())) {
+                    list.add(new Property(field, annotation));
+                }
+            }
+        }
+
+        properties = list.toArray(new Property[0]);
+    }
+
+    /**
+     * Get writer of a model class (built on first call)
+     * @throws IllegalArgumentException if a mode does not fit its field type
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> JsonModelWriter<T> of(@NonNull Class<T> type) {
+        JsonModelWriter<?> writer = WRITERS.get(type);
+
+        if (writer == null) {
+            writer = new JsonModelWriter<>(type);
+
+            JsonModelWriter<?> previous = WRITERS.putIfAbsent(type, writer);
+            if (previous != null) {
+                writer = previous;
+            }
+        }
+
+        return (JsonModelWriter<T>) writer;
+    }
+
+    @NonNull
+    public JsonHelper toJson(@NonNull T model) {
+        return toJson(model, new JsonHelper());
+    }
+
+    /**
+     * Put model fields into an existing helper (e.g. one from JsonHelperPool)
+     */
+    @NonNull
+    public JsonHelper toJson(@NonNull T model, @NonNull JsonHelper json) {
+        try {
+            for (Property property : properties) {
+                property.put(json, model);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return json;
+    }
+
+    /**
+     * Write model as json object into stream
+     */
+    @NonNull
+    public JsonStreamWriter write(@NonNull T model, @NonNull JsonStreamWriter stream) {
+        stream.beginObject();
+
+        try {
+            for (Property property : properties) {
+                property.write(stream, model);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return stream.endObject();
+    }
+
+    /**
+     * Same as JsonHelper.arrayOf(list, this)
+     */
+    @NonNull
+    public JSONArray toJsonArray(@NonNull List<T> models) {
+        return JsonHelper.arrayOf(models, this);
+    }
+
+    /**
+     * Same as JsonHelper.writeArrayOf(list, this, writer)
+     */
+    public void writeArray(@NonNull List<T> models, @NonNull Writer writer) throws IOException {
+        JsonHelper.writeArrayOf(models, this, writer);
+    }
+
+    @Override
+    public Object map(T item) {
+        return item != null ? toJson(item) : null;
+    }
+
+    /**
+     * Writer of a collection element, null when it is not a model
+     */
+    @SuppressWarnings("unchecked")
+    private static JsonModelWriter<Object> modelOf(Object item) {
+        if (item == null) {
+            return null;
+        }
+
+        Class<?> type = item.getClass();
+        Boolean isModel = MODEL_TYPES.get(type);
+
+        if (isModel == null) {
+            isModel = hasJsonFields(type);
+            MODEL_TYPES.put(type, isModel);
+        }
+
+        return isModel ? (JsonModelWriter<Object>) of(type) : null;
+    }
+
+    private static boolean hasJsonFields(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(JsonField.class)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Resolved field
+     */
+    private static class Property {
+        private final Field field;
+        private final String name;
+        private final int kind;
+        private final int mode;
+        private final String pattern;
+
+        /**
+         * Writer of MODEL fields, resolved on first use (models may reference themselves)
+         */
+        private JsonModelWriter<Object> model;
+
+        private Property(Field field, JsonField annotation) {
+            field.setAccessible(true);
+
+            this.field = field;
+            this.name = annotation.value().isEmpty() ? field.getName() : annotation.value();
+            this.kind = kindOf(field.getType());
+            this.mode = annotation.mode();
+            this.pattern = annotation.pattern().isEmpty() ? DateHelper.ISO_DATETIME : annotation.pattern();
+
+            boolean numeric = kind == INT || kind == LONG || kind == DOUBLE || kind == BOXED_NUMBER || kind == BOXED_DOUBLE;
+
+            if ((mode == JsonField.INT_NULL && !numeric)
+                    || (mode == JsonField.STRING_NULL && kind != STRING)
+                    || mode < JsonField.DEFAULT || mode > JsonField.STRING_NULL) {
+                throw new IllegalArgumentException("Invalid mode " + mode + " for field " + field);
+            }
+        }
+
+        private static int kindOf(Class<?> type) {
+            if (type == int.class || type == short.class || type == byte.class) {
+                return INT;
+            } else if (type == long.class) {
+                return LONG;
+            } else if (type == double.class || type == float.class) {
+                return DOUBLE;
+            } else if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+                return BOXED_NUMBER;
+            } else if (type == Double.class || type == Float.class) {
+                return BOXED_DOUBLE;
+            } else if (type == Boolean.class) {
+                return BOXED_BOOLEAN;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (Date.class.isAssignableFrom(type)) {
+                return DATE;
+            } else if (JSONArray.class.isAssignableFrom(type)) {
+                return JSON_ARRAY;
+            } else if (Collection.class.isAssignableFrom(type)) {
+                return COLLECTION;
+            } else if (Bitmap.class.isAssignableFrom(type)) {
+                return BITMAP;
+            } else if (hasJsonFields(type)) {
+                return MODEL;
+            }
+
+            return OBJECT;
+        }
+
+        private void put(JsonHelper json, Object target) throws IllegalAccessException {
+            switch (kind) {
+                case INT:
+                    putInt(json, field.getInt(target));
+                    return;
+                case LONG:
+                    putLong(json, field.getLong(target));
+                    return;
+                case DOUBLE:
+                    putDouble(json, field.getDouble(target));
+                    return;
+                case BOOLEAN:
+                    json.put(name, field.getBoolean(target));
+                    return;
+                case STRING:
+                    putString(json, (String) field.get(target));
+                    return;
+                case DATE:
+                    if (mode == JsonField.NON_NULL) {
+                        json.putNonNull(name, (Date) field.get(target), pattern);
+                    } else {
+                        json.put(name, (Date) field.get(target), pattern);
+                    }
+                    return;
+                case JSON_ARRAY:
+                    if (mode == JsonField.NON_NULL) {
+                        json.putNonNull(name, (JSONArray) field.get(target));
+                    } else {
+                        json.put(name, (JSONArray) field.get(target));
+                    }
+                    return;
+                case BITMAP:
+                    if (mode == JsonField.NON_NULL) {
+                        json.putNonNull(name, (Bitmap) field.get(target));
+                    } else {
+                        json.put(name, (Bitmap) field.get(target));
+                    }
+                    return;
+                default:
+                    break;
+            }
+
+            Object value = field.get(target);
+
+            if (value == null) {
+                if (mode != JsonField.NON_NULL) {
+                    json.put(name, (Object) null);
+                }
+                return;
+            }
+
+            switch (kind) {
+                case BOXED_NUMBER:
+                    putLong(json, ((Number) value).longValue());
+                    break;
+                case BOXED_DOUBLE:
+                    putDouble(json, ((Number) value).doubleValue());
+                    break;
+                case COLLECTION:
+                    if (mode != JsonField.NON_NULL || !((Collection<?>) value).isEmpty()) {
+                        json.put(name, (Object) toJsonArray((Collection<?>) value));
+                    }
+                    break;
+                case MODEL:
+                    json.put(name, (Object) getModel().toJson(value));
+                    break;
+                default:
+                    json.put(name, value);
+                    break;
+            }
+        }
+
+        private void write(JsonStreamWriter stream, Object target) throws IllegalAccessException {
+            switch (kind) {
+                case INT:
+                    writeLong(stream, field.getInt(target));
+                    return;
+                case LONG:
+                    writeLong(stream, field.getLong(target));
+                    return;
+                case DOUBLE:
+                    writeDouble(stream, field.getDouble(target));
+                    return;
+                case BOOLEAN:
+                    stream.put(name, field.getBoolean(target));
+                    return;
+                case STRING:
+                    writeString(stream, (String) field.get(target));
+                    return;
+                case DATE:
+                    if (mode == JsonField.NON_NULL) {
+                        stream.putNonNull(name, (Date) field.get(target), pattern);
+                    } else {
+                        stream.put(name, (Date) field.get(target), pattern);
+                    }
+                    return;
+                case JSON_ARRAY:
+                    if (mode == JsonField.NON_NULL) {
+                        stream.putNonNull(name, (JSONArray) field.get(target));
+                    } else {
+                        stream.put(name, (JSONArray) field.get(target));
+                    }
+                    return;
+                case BITMAP:
+                    if (mode == JsonField.NON_NULL) {
+                        stream.putNonNull(name, (Bitmap) field.get(target));
+                    } else {
+                        stream.put(name, (Bitmap) field.get(target));
+                    }
+                    return;
+                default:
+                    break;
+            }
+
+            Object value = field.get(target);
+
+            if (value == null) {
+                if (mode != JsonField.NON_NULL) {
+                    stream.name(name).nullValue();
+                }
+                return;
+            }
+
+            switch (kind) {
+                case BOXED_NUMBER:
+                    writeLong(stream, ((Number) value).longValue());
+                    break;
+                case BOXED_DOUBLE:
+                    writeDouble(stream, ((Number) value).doubleValue());
+                    break;
+                case COLLECTION:
+                    if (mode != JsonField.NON_NULL || !((Collection<?>) value).isEmpty()) {
+                        writeArray(stream.name(name), (Collection<?>) value);
+                    }
+                    break;
+                case MODEL:
+                    getModel().write(value, stream.name(name));
+                    break;
+                default:
+                    stream.put(name, value);
+                    break;
+            }
+        }
+
+        /**
+         * Same elements as new JSONArray(collection), models written by their writer
+         * (nested collections too)
+         */
+        private static JSONArray toJsonArray(Collection<?> collection) {
+            JSONArray array = new JSONArray();
+
+            for (Object item : collection) {
+                JsonModelWriter<Object> writer = modelOf(item);
+
+                if (writer != null) {
+                    array.put(writer.toJson(item));
+                } else if (item instanceof Collection) {
+                    array.put(toJsonArray((Collection<?>) item));
+                } else {
+                    array.put(JSONObject.wrap(item));
+                }
+            }
+
+            return array;
+        }
+
+        private static void writeArray(JsonStreamWriter stream, Collection<?> collection) {
+            stream.beginArray();
+
+            for (Object item : collection) {
+                JsonModelWriter<Object> writer = modelOf(item);
+
+                if (writer != null) {
+                    writer.write(item, stream);
+                } else if (item instanceof Collection) {
+                    writeArray(stream, (Collection<?>) item);
+                } else {
+                    stream.value(item);
+                }
+            }
+
+            stream.endArray();
+        }
+
+        private void putInt(JsonHelper json, int value) {
+            if (mode == JsonField.NON_NULL) {
+                json.putNonNull(name, value);
+            } else if (mode == JsonField.INT_NULL) {
+                json.putIntNull(name, value);
+            } else {
+                json.put(name, value);
+            }
+        }
+
+        private void putLong(JsonHelper json, long value) {
+            if (value == (int) value) {
+                putInt(json, (int) value);
+            } else if (value > 0 || mode == JsonField.DEFAULT) {
+                json.put(name, (Object) value);
+            } else if (mode == JsonField.INT_NULL) {
+                json.put(name, (Object) null);
+            }
+        }
+
+        private void putDouble(JsonHelper json, double value) {
+            if (mode == JsonField.NON_NULL) {
+                json.putNonNull(name, value);
+            } else if (mode == JsonField.INT_NULL && !(value > 0)) {
+                json.put(name, (Object) null);
+            } else {
+                json.put(name, value);
+            }
+        }
+
+        private void putString(JsonHelper json, String value) {
+            if (mode == JsonField.NON_NULL) {
+                json.putNonNull(name, value);
+            } else if (mode == JsonField.STRING_NULL) {
+                json.putStringNull(name, value);
+            } else {
+                json.put(name, value);
+            }
+        }
+
+        private void writeLong(JsonStreamWriter stream, long value) {
+            if (value > 0 || mode == JsonField.DEFAULT) {
+                stream.name(name).value(value);
+            } else if (mode == JsonField.INT_NULL) {
+                stream.name(name).nullValue();
+            }
+        }
+
+        private void writeDouble(JsonStreamWriter stream, double value) {
+            if (mode == JsonField.NON_NULL) {
+                stream.putNonNull(name, value);
+            } else if (mode == JsonField.INT_NULL && !(value > 0)) {
+                stream.name(name).nullValue();
+            } else {
+                stream.put(name, value);
+            }
+        }
+
+        private void writeString(JsonStreamWriter stream, String value) {
+            if (mode == JsonField.NON_NULL) {
+                stream.putNonNull(name, value);
+            } else if (mode == JsonField.STRING_NULL) {
+                stream.putStringNull(name, value);
+            } else {
+                stream.put(name, value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private JsonModelWriter<Object> getModel() {
+            if (model == null) {
+                model = (JsonModelWriter<Object>) of(field.getType());
+            }
+
+            return model;
+        }
+    }
+}
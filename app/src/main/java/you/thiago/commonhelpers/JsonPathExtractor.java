@@ -0,0 +1,411 @@
+package you.thiago.commonhelpers;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Extract a few values from a large json document without parsing all of it
+ *
+ * The document is read as a token stream; subtrees no path can reach are
+ * skipped without building them, and only matched values are kept. Reading
+ * stops as soon as every path without wildcards was found (first occurrence
+ * wins), so fields near the top don't cost the rest of the document.
+ *
+ * Paths: "meta.version", "data.items[0].id", "data.items[*].id", "data.*.id"
+ * ("$." prefix is optional, "*" matches any member or element).
+ * Matched objects are JsonHelper, arrays JSONArray, numbers Integer, Long or Double.
+ *
+ * Usage:
+ *  JsonPathExtractor extractor = new JsonPathExtractor("meta.version", "data.items[*].id");
+ *  LinkedHashMap<String, List<Object>> values = extractor.extract(connection.getInputStream());
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class JsonPathExtractor {
+
+    /**
+     * Receive matches as they are read (nothing is kept, for paths matching many values)
+     */
+    public interface Listener {
+        void onMatch(@NonNull String path, Object value);
+    }
+
+    private static final int ANY = -1;
+
+    private final String[] paths;
+    private final Segment[][] segments;
+    private final boolean[] definite;
+
+    /**
+     * @throws IllegalArgumentException for invalid paths
+     */
+    public JsonPathExtractor(@NonNull String... paths) {
+        this.paths = paths.clone();
+        this.segments = new Segment[paths.length][];
+        this.definite = new boolean[paths.length];
+
+        for (int i = 0; i < paths.length; i++) {
+            segments[i] = compile(paths[i]);
+            definite[i] = true;
+
+            for (Segment segment : segments[i]) {
+                if (segment.isWildcard()) {
+                    definite[i] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Matched values of each path, in document order (empty list when not found)
+     */
+    @NonNull
+    public LinkedHashMap<String, List<Object>> extract(@NonNull Reader reader) throws IOException {
+        final LinkedHashMap<String, List<Object>> values = new LinkedHashMap<>();
+
+        for (String path : paths) {
+            values.put(path, new ArrayList<>());
+        }
+
+        extract(reader, new Listener() {
+            @Override
+            public void onMatch(@NonNull String path, Object value) {
+                values.get(path).add(value);
+            }
+        });
+
+        return values;
+    }
+
+    /**
+     * Read UTF-8 stream, see extract(Reader)
+     */
+    @NonNull
+    public LinkedHashMap<String, List<Object>> extract(@NonNull InputStream in) throws IOException {
+        return extract(new InputStreamReader(in, "UTF-8"));
+    }
+
+    /**
+     * Report each match to listener while reading (reader is not closed)
+     * @throws IOException on read errors and malformed json
+     */
+    public void extract(@NonNull Reader reader, @NonNull Listener listener) throws IOException {
+        int[] active = new int[paths.length];
+
+        for (int i = 0; i < active.length; i++) {
+            active[i] = i;
+        }
+
+        try {
+            new Walk(new JsonReader(reader), listener).value(active, active.length, 0);
+        } catch (IllegalStateException e) {
+            /* JsonReader reports unexpected tokens this way */
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    public void extract(@NonNull InputStream in, @NonNull Listener listener) throws IOException {
+        extract(new InputStreamReader(in, "UTF-8"), listener);
+    }
+
+    /**
+     * Split path into member names and array indexes
+     */
+    private static Segment[] compile(String path) {
+        ArrayList<Segment> list = new ArrayList<>();
+        int i = path.startsWith("$") ? 1 : 0;
+        int length = path.length();
+
+        while (i < length) {
+            char c = path.charAt(i);
+
+            if (c == '[') {
+                int end = path.indexOf(']', i);
+
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated index in path: " + path);
+                }
+
+                String index = path.substring(i + 1, end).trim();
+
+                try {
+                    list.add(index.equals("*") ? new Segment(null, ANY) : new Segment(null, Integer.parseInt(index)));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid index in path: " + path, e);
+                }
+
+                if (list.get(list.size() - 1).index < ANY) {
+                    throw new IllegalArgumentException("Negative index in path: " + path);
+                }
+
+                i = end + 1;
+                continue;
+            }
+
+            if (c == '.') {
+                i++;
+            } else if (i > (path.startsWith("$") ? 1 : 0)) {
+                throw new IllegalArgumentException("Expected '.' or '[' at " + i + " in path: " + path);
+            }
+
+            int end = i;
+            while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                end++;
+            }
+
+            if (end == i) {
+                throw new IllegalArgumentException("Empty name in path: " + path);
+            }
+
+            String name = path.substring(i, end);
+            list.add(name.equals("*") ? new Segment(null, ANY) : new Segment(name, ANY));
+            i = end;
+        }
+
+        return list.toArray(new Segment[0]);
+    }
+
+    /**
+     * Number like JSONTokener reads it
+     */
+    private static Object number(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long value = Long.parseLong(literal);
+                return value == (int) value ? (Object) (int) value : (Object) value;
+            } catch (NumberFormatException e) {
+                /* past long range */
+            }
+        }
+
+        return Double.valueOf(literal);
+    }
+
+    /**
+     * Member name (index ANY) or array index (name null), both null and ANY for wildcard
+     */
+    private static class Segment {
+        private final String name;
+        private final int index;
+
+        private Segment(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        private boolean isWildcard() {
+            return name == null && index == ANY;
+        }
+
+        private boolean matches(String member) {
+            return name != null ? name.equals(member) : index == ANY;
+        }
+
+        private boolean matches(int element) {
+            return name == null && (index == ANY || index == element);
+        }
+    }
+
+    /**
+     * State of a single extraction
+     */
+    private class Walk {
+        private final JsonReader reader;
+        private final Listener listener;
+        private final boolean[] found = new boolean[paths.length];
+        private int remaining;
+
+        private Walk(JsonReader reader, Listener listener) {
+            this.reader = reader;
+            this.listener = listener;
+
+            for (boolean value : definite) {
+                remaining += value ? 1 : 0;
+            }
+
+            /* with wildcards the whole document must be read */
+            if (remaining < paths.length) {
+                remaining = Integer.MAX_VALUE;
+            }
+        }
+
+        /**
+         * Read value at depth, reached by the active paths
+         */
+        private void value(int[] active, int count, int depth) throws IOException {
+            boolean complete = false;
+
+            for (int i = 0; i < count; i++) {
+                if (segments[active[i]].length == depth) {
+                    complete = true;
+                }
+            }
+
+            if (complete) {
+                /* some path ends here, deeper paths are matched on the built value */
+                Object value = read();
+
+                for (int i = 0; i < count; i++) {
+                    match(value, active[i], depth);
+                }
+
+                return;
+            }
+
+            JsonToken token = reader.peek();
+
+            if (token == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                int[] next = new int[count];
+
+                while (reader.hasNext()) {
+                    if (remaining == 0) {
+                        return;
+                    }
+
+                    String name = reader.nextName();
+                    int nextCount = 0;
+
+                    for (int i = 0; i < count; i++) {
+                        if (!found[active[i]] && segments[active[i]][depth].matches(name)) {
+                            next[nextCount++] = active[i];
+                        }
+                    }
+
+                    if (nextCount > 0) {
+                        value(next, nextCount, depth + 1);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+
+                reader.endObject();
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                int[] next = new int[count];
+
+                for (int element = 0; reader.hasNext(); element++) {
+                    if (remaining == 0) {
+                        return;
+                    }
+
+                    int nextCount = 0;
+
+                    for (int i = 0; i < count; i++) {
+                        if (!found[active[i]] && segments[active[i]][depth].matches(element)) {
+                            next[nextCount++] = active[i];
+                        }
+                    }
+
+                    if (nextCount > 0) {
+                        value(next, nextCount, depth + 1);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+
+                reader.endArray();
+            } else {
+                /* paths go deeper than this value */
+                reader.skipValue();
+            }
+        }
+
+        /**
+         * Match path against an already built value
+         */
+        private void match(Object value, int path, int depth) {
+            if (found[path]) {
+                return;
+            }
+
+            Segment[] pathSegments = segments[path];
+
+            if (pathSegments.length == depth) {
+                listener.onMatch(paths[path], value);
+
+                if (definite[path]) {
+                    found[path] = true;
+                    remaining--;
+                }
+
+                return;
+            }
+
+            Segment segment = pathSegments[depth];
+
+            if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                Iterator<String> keys = object.keys();
+
+                while (keys.hasNext()) {
+                    String key = keys.next();
+
+                    if (segment.matches(key)) {
+                        match(object.opt(key), path, depth + 1);
+                    }
+                }
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+
+                for (int i = 0; i < array.length(); i++) {
+                    if (segment.matches(i)) {
+                        match(array.opt(i), path, depth + 1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Build current value
+         */
+        private Object read() throws IOException {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    JsonHelper object = new JsonHelper();
+                    reader.beginObject();
+
+                    while (reader.hasNext()) {
+                        object.put(reader.nextName(), read());
+                    }
+
+                    reader.endObject();
+                    return object;
+                case BEGIN_ARRAY:
+                    JSONArray array = new JSONArray();
+                    reader.beginArray();
+
+                    while (reader.hasNext()) {
+                        array.put(read());
+                    }
+
+                    reader.endArray();
+                    return array;
+                case STRING:
+                    return reader.nextString();
+                case NUMBER:
+                    return number(reader.nextString());
+                case BOOLEAN:
+                    return reader.nextBoolean();
+                case NULL:
+                    reader.nextNull();
+                    return JSONObject.NULL;
+                default:
+                    throw new IOException("Unexpected " + reader.peek());
+            }
+        }
+    }
+}
@@ -0,0 +1,909 @@
+package you.thiago.commonhelpers;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Streaming counterpart of JsonHelper
+ *
+ * Same fluent put/putNonNull/putIntNull rules, but values are written straight
+ * into the output through a small fixed buffer instead of being kept in a tree.
+ * Like JsonHelper, write errors do not break the fluent chain: they are logged
+ * and the first one is thrown again by flush() or close().
+ *
+ * Usage:
+ *  new JsonStreamWriter(out).beginObject().put("id", 1).putNonNull("name", name).endObject().close();
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue", "WeakerAccess"})
+public class JsonStreamWriter implements Closeable, Flushable {
+
+    private static final String DEFAULT_DATE_FORMAT = DateHelper.ISO_DATETIME;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Nesting scopes
+     */
+    private static final int EMPTY_OBJECT = 1;
+    private static final int NONEMPTY_OBJECT = 2;
+    private static final int EMPTY_ARRAY = 3;
+    private static final int NONEMPTY_ARRAY = 4;
+    private static final int DANGLING_NAME = 5;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+
+    private int[] stack = new int[16];
+    private int depth = 0;
+
+    private IOException error;
+
+    /**
+     * Reused by every bitmap value
+     */
+    private Base64Sink base64Sink;
+
+    public JsonStreamWriter(@NonNull Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write UTF-8 text into stream
+     */
+    public JsonStreamWriter(@NonNull OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+    }
+
+    @NonNull
+    public JsonStreamWriter beginObject() {
+        beforeValue();
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    @NonNull
+    public JsonStreamWriter beginObject(@NonNull String name) {
+        name(name);
+        return beginObject();
+    }
+
+    @NonNull
+    public JsonStreamWriter endObject() {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @NonNull
+    public JsonStreamWriter beginArray() {
+        beforeValue();
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    @NonNull
+    public JsonStreamWriter beginArray(@NonNull String name) {
+        name(name);
+        return beginArray();
+    }
+
+    @NonNull
+    public JsonStreamWriter endArray() {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Write member name, next call must write its value
+     */
+    @NonNull
+    public JsonStreamWriter name(@NonNull String name) {
+        int scope = peek();
+
+        if (scope == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem: name outside an object");
+        }
+
+        stack[depth - 1] = DANGLING_NAME;
+
+        writeString(name);
+        write(':');
+
+        return this;
+    }
+
+    @NonNull
+    public JsonStreamWriter nullValue() {
+        beforeValue();
+        writeRaw("null");
+        return this;
+    }
+
+    @NonNull
+    public JsonStreamWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    @NonNull
+    public JsonStreamWriter value(boolean value) {
+        beforeValue();
+        writeRaw(value ? "true" : "false");
+        return this;
+    }
+
+    @NonNull
+    public JsonStreamWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Write number like JSONObject does (integral doubles without fraction)
+     * @throws IllegalArgumentException for NaN and infinities
+     */
+    @NonNull
+    public JsonStreamWriter value(double value) {
+        checkDouble(value);
+        beforeValue();
+        writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Write any JSONObject supported value (JSONObject, JSONArray, collections, maps, primitives)
+     */
+    @NonNull
+    public JsonStreamWriter value(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return nullValue();
+        }
+
+        if (value instanceof String) {
+            return value((String) value);
+        }
+
+        if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        }
+
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+
+        if (value instanceof Float) {
+            /* JSONObject prints floats with their own precision, and -0f as 0 (only Double -0 keeps its sign) */
+            float floatValue = (Float) value;
+            checkDouble(floatValue);
+            beforeValue();
+
+            if (floatValue == (long) floatValue) {
+                writeLong((long) floatValue);
+            } else {
+                writeRaw(Float.toString(floatValue));
+            }
+
+            return this;
+        }
+
+        if (value instanceof Number) {
+            return value(((Number) value).doubleValue());
+        }
+
+        if (value instanceof JsonBitmap) {
+            return bitmapValue((JsonBitmap) value);
+        }
+
+        if (value instanceof JsonBlob) {
+            return blobValue((JsonBlob) value);
+        }
+
+        if (value instanceof NumericArray) {
+            return numericValue((NumericArray) value);
+        }
+
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            beginObject();
+
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                name(key).value(object.opt(key));
+            }
+
+            return endObject();
+        }
+
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            beginArray();
+
+            for (int i = 0; i < array.length(); i++) {
+                value(array.opt(i));
+            }
+
+            return endArray();
+        }
+
+        if (value instanceof Collection) {
+            beginArray();
+
+            for (Object item : (Collection<?>) value) {
+                value(item);
+            }
+
+            return endArray();
+        }
+
+        if (value instanceof Map) {
+            beginObject();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey())).value(entry.getValue());
+            }
+
+            return endObject();
+        }
+
+        return value(value.toString());
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, int value) {
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, double value) {
+        if (isInvalid(value)) {
+            return this;
+        }
+
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, String value) {
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, Object value) {
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, int value, Integer defaultValue) {
+        if (value >= 0) {
+            return name(name).value(value);
+        }
+
+        return defaultValue != null ? name(name).value(defaultValue.intValue()) : name(name).nullValue();
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, double value, double defaultValue) {
+        double actual = value > 0 ? value : defaultValue;
+        if (isInvalid(actual)) {
+            return this;
+        }
+
+        return name(name).value(actual);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, String value, String defaultValue) {
+        return name(name).value(Validator.isNotEmpty(value) ? value : defaultValue);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, JSONArray value, JSONArray defaultValue) {
+        return name(name).value(value != null ? value : defaultValue);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, JSONArray value) {
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, Date value) {
+        return put(name, value, DEFAULT_DATE_FORMAT);
+    }
+
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, Date value, String pattern) {
+        if (value == null) {
+            return name(name).nullValue();
+        }
+
+        return name(name).dateValue(value, pattern);
+    }
+
+    /**
+     * Same as JsonHelper, pattern is the one used
+     */
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, Date value, String pattern, String dateFormat) {
+        return put(name, value, pattern);
+    }
+
+    /**
+     * Same as JsonHelper, null bitmap is written as empty string
+     */
+    @NonNull
+    public JsonStreamWriter put(@NonNull String name, Bitmap value) {
+        if (value == null) {
+            return name(name).value("");
+        }
+
+        return name(name).bitmapValue(new JsonBitmap(value));
+    }
+
+    @NonNull
+    public JsonStreamWriter putArray(@NonNull String name, double[] value) {
+        if (value == null) {
+            return name(name).nullValue();
+        }
+
+        if (!NumericArray.isValid(value)) {
+            Log.e(getClass().getSimpleName(), "Forbidden numeric value in array " + name);
+            return this;
+        }
+
+        return name(name).numericValue(new NumericArray(value));
+    }
+
+    @NonNull
+    public JsonStreamWriter putArray(@NonNull String name, int[] value) {
+        return value != null ? name(name).numericValue(new NumericArray(value)) : name(name).nullValue();
+    }
+
+    @NonNull
+    public JsonStreamWriter putIntNull(@NonNull String name, int value) {
+        return putIntNull(name, value, 0);
+    }
+
+    @NonNull
+    public JsonStreamWriter putIntNull(@NonNull String name, int value, int nullValue) {
+        return value > nullValue ? name(name).value(value) : name(name).nullValue();
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, int value) {
+        return putNonNull(name, value, 0);
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, int value, int nullValue) {
+        return value > nullValue ? name(name).value(value) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, double value) {
+        return value > 0 && !isInvalid(value) ? name(name).value(value) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, String value) {
+        return Validator.isNotEmpty(value) ? name(name).value(value) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putStringNull(@NonNull String name, String value) {
+        return Validator.isNotEmpty(value) ? name(name).value(value) : name(name).nullValue();
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Date value) {
+        return putNonNull(name, value, DEFAULT_DATE_FORMAT);
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Date value, String pattern) {
+        return value != null ? name(name).dateValue(value, pattern) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Date value, String pattern, String dateFormat) {
+        return putNonNull(name, value, pattern);
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Bitmap value) {
+        return value != null ? name(name).bitmapValue(new JsonBitmap(value)) : this;
+    }
+
+    /**
+     * Bitmap encoded by ImageComponent with size and quality
+     */
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Bitmap value, int imgWidth, int imgHeight, int imgQuality) {
+        return value != null ? name(name).bitmapValue(new JsonBitmap(value, imgWidth, imgHeight, imgQuality)) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, JSONArray value) {
+        return value != null && value.length() > 0 ? name(name).value(value) : this;
+    }
+
+    @NonNull
+    public JsonStreamWriter putNonNull(@NonNull String name, Collection<?> value) {
+        return value != null && value.size() > 0 ? name(name).value(value) : this;
+    }
+
+    /**
+     * Write buffered text into the output
+     * @throws IOException first write error, if any
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        checkError();
+        writer.flush();
+    }
+
+    /**
+     * Flush and close the output
+     * @throws IOException first write error, if any
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.close();
+        }
+
+        if (depth > 0) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    /**
+     * Check if some write failed (the document is incomplete)
+     */
+    public boolean hasError() {
+        return error != null;
+    }
+
+    /**
+     * Date value, ISO patterns are written without intermediate String
+     */
+    private JsonStreamWriter dateValue(Date value, String pattern) {
+        beforeValue();
+        write('"');
+
+        if (IsoDateCodec.supports(pattern)) {
+            ensureCapacity(IsoDateCodec.DATETIME_LENGTH);
+
+            int written = DateHelper.ISO_DATETIME.equals(pattern)
+                    ? IsoDateCodec.formatDateTime(value.getTime(), buffer, length)
+                    : IsoDateCodec.formatDate(value.getTime(), buffer, length);
+
+            if (written >= 0) {
+                length += written;
+                write('"');
+                return this;
+            }
+        }
+
+        writeEscaped(DateFormatterCache.get(pattern).format(value));
+        write('"');
+
+        return this;
+    }
+
+    /**
+     * Bitmap compressed straight into the buffer as base64, same text as
+     * ImageComponent (see JsonBitmap, unchecked or different encodings use its String)
+     */
+    private JsonStreamWriter bitmapValue(JsonBitmap value) {
+        int encoding = value.getStreamEncoding();
+
+        if (encoding == JsonBitmap.UNCHECKED || encoding == JsonBitmap.NOT_STREAMED) {
+            String text = value.toString();
+
+            if (encoding == JsonBitmap.UNCHECKED && text.length() > 0) {
+                value.checkStreamEncoding(text);
+            }
+
+            return value(text);
+        }
+
+        beforeValue();
+        write('"');
+
+        Base64Sink sink = getBase64Sink();
+        sink.start(encoding == JsonBitmap.WRAP);
+
+        try {
+            value.compress(sink);
+        } catch (IOException | RuntimeException e) {
+            /* already written bytes can't be taken back, the value is truncated */
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        sink.finish();
+        write('"');
+
+        return this;
+    }
+
+    /**
+     * Primitive array without boxing
+     */
+    private JsonStreamWriter numericValue(NumericArray value) {
+        beginArray();
+
+        if (value.ints != null) {
+            for (int item : value.ints) {
+                value(item);
+            }
+        } else {
+            for (double item : value.doubles) {
+                value(item);
+            }
+        }
+
+        return endArray();
+    }
+
+    /**
+     * Raw bytes as base64
+     */
+    private JsonStreamWriter blobValue(JsonBlob value) {
+        beforeValue();
+        write('"');
+
+        Base64Sink sink = getBase64Sink();
+        sink.start(false);
+        sink.write(value.bytes, 0, value.bytes.length);
+        sink.finish();
+
+        write('"');
+        return this;
+    }
+
+    private Base64Sink getBase64Sink() {
+        if (base64Sink == null) {
+            base64Sink = new Base64Sink();
+        }
+
+        return base64Sink;
+    }
+
+    private JsonStreamWriter open(int scope, char bracket) {
+        if (depth == stack.length) {
+            int[] newStack = new int[depth * 2];
+            System.arraycopy(stack, 0, newStack, 0, depth);
+            stack = newStack;
+        }
+
+        stack[depth++] = scope;
+        write(bracket);
+
+        return this;
+    }
+
+    private JsonStreamWriter close(int emptyScope, int nonemptyScope, char bracket) {
+        int scope = peek();
+
+        if (scope != emptyScope && scope != nonemptyScope) {
+            throw new IllegalStateException("Nesting problem");
+        }
+
+        depth--;
+        write(bracket);
+
+        return this;
+    }
+
+    private int peek() {
+        return depth > 0 ? stack[depth - 1] : 0;
+    }
+
+    /**
+     * Write separator and update scope before a value
+     */
+    private void beforeValue() {
+        switch (peek()) {
+            case 0:
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem: value without name");
+        }
+    }
+
+    private static void checkDouble(double value) {
+        if (isInvalid(value)) {
+            throw new IllegalArgumentException("Forbidden numeric value: " + value);
+        }
+    }
+
+    /**
+     * NaN and infinities are rejected by JSONObject too
+     */
+    private static boolean isInvalid(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            Log.e(JsonStreamWriter.class.getSimpleName(), "Forbidden numeric value: " + value);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw("-9223372036854775808");
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        length += digits;
+    }
+
+    private void writeDouble(double value) {
+        long longValue = (long) value;
+
+        if (value == 0 && 1 / value < 0) {
+            writeRaw("-0");
+        } else if (value == (double) longValue) {
+            writeLong(longValue);
+        } else {
+            writeRaw(Double.toString(value));
+        }
+    }
+
+    private void writeString(String value) {
+        write('"');
+        writeEscaped(value);
+        write('"');
+    }
+
+    /**
+     * Escape string the same way JSONStringer does
+     */
+    private void writeEscaped(String value) {
+        for (int i = 0, count = value.length(); i < count; i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    write('\\');
+                    write(c);
+                    break;
+                case '\t':
+                    writeRaw("\\t");
+                    break;
+                case '\b':
+                    writeRaw("\\b");
+                    break;
+                case '\n':
+                    writeRaw("\\n");
+                    break;
+                case '\r':
+                    writeRaw("\\r");
+                    break;
+                case '\f':
+                    writeRaw("\\f");
+                    break;
+                default:
+                    if (c <= 0x1F) {
+                        ensureCapacity(6);
+                        buffer[length++] = '\\';
+                        buffer[length++] = 'u';
+                        buffer[length++] = '0';
+                        buffer[length++] = '0';
+                        buffer[length++] = HEX[c >> 4];
+                        buffer[length++] = HEX[c & 0xF];
+                    } else {
+                        write(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void writeRaw(String value) {
+        for (int i = 0, count = value.length(); i < count; i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void write(char c) {
+        if (length == buffer.length) {
+            flushBuffer();
+        }
+
+        buffer[length++] = c;
+    }
+
+    private void ensureCapacity(int count) {
+        if (buffer.length - length < count) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        if (length == 0) {
+            return;
+        }
+
+        try {
+            if (error == null) {
+                writer.write(buffer, 0, length);
+            }
+        } catch (IOException e) {
+            error = e;
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        length = 0;
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Base64 encoder writing into the char buffer (with '/' escaped like JSONStringer)
+     * Wrapped output breaks lines like Base64.DEFAULT, with the newline escaped
+     */
+    private class Base64Sink extends OutputStream {
+        private int pending;
+        private int pendingCount;
+        private boolean wrap;
+        private int lineGroups;
+
+        private void start(boolean wrap) {
+            this.wrap = wrap;
+            this.lineGroups = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            pending = (pending << 8) | (b & 0xFF);
+
+            if (++pendingCount == 3) {
+                writeGroup(pending);
+
+                pending = 0;
+                pendingCount = 0;
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] bytes, int offset, int count) {
+            int end = offset + count;
+            int i = offset;
+
+            while (i < end && pendingCount != 0) {
+                write(bytes[i++]);
+            }
+
+            for (; i + 3 <= end; i += 3) {
+                writeGroup((bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF));
+            }
+
+            while (i < end) {
+                write(bytes[i++]);
+            }
+        }
+
+        /**
+         * Write remaining bytes with padding
+         */
+        private void finish() {
+            ensureCapacity(10);
+
+            if (pendingCount == 1) {
+                writeDigit(pending >> 2);
+                writeDigit(pending << 4);
+                buffer[length++] = '=';
+                buffer[length++] = '=';
+            } else if (pendingCount == 2) {
+                writeDigit(pending >> 10);
+                writeDigit(pending >> 4);
+                writeDigit(pending << 2);
+                buffer[length++] = '=';
+            }
+
+            if (wrap && (pendingCount > 0 || lineGroups > 0)) {
+                buffer[length++] = '\\';
+                buffer[length++] = 'n';
+            }
+
+            pending = 0;
+            pendingCount = 0;
+            lineGroups = 0;
+        }
+
+        /**
+         * Write 3 bytes as 4 digits (76 chars per line when wrapping)
+         */
+        private void writeGroup(int bits) {
+            ensureCapacity(10);
+            writeDigit(bits >> 18);
+            writeDigit(bits >> 12);
+            writeDigit(bits >> 6);
+            writeDigit(bits);
+
+            if (wrap && ++lineGroups == 19) {
+                buffer[length++] = '\\';
+                buffer[length++] = 'n';
+                lineGroups = 0;
+            }
+        }
+
+        private void writeDigit(int bits) {
+            char c = BASE64[bits & 0x3F];
+
+            if (c == '/') {
+                buffer[length++] = '\\';
+            }
+
+            buffer[length++] = c;
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package you.thiago.commonhelpers;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JsonHelper that parses values only when they are read
+ *
+ * The constructor scans the text once to index where each top-level value
+ * starts and ends, without building any value. Only that structure is checked
+ * there (unbalanced or truncated documents throw JSONException); a syntax error
+ * inside a value is found when the value is read: opt() logs it and returns
+ * null, get() throws it. Documents using the lenient syntax JSONTokener accepts
+ * (comments, unquoted names, ';' separators...) are parsed eagerly instead.
+ * A value is parsed on its first read; nested objects are LazyJsonHelper too,
+ * sharing the same source String.
+ *
+ * Values put after parsing shadow the source ones. toString() and writeTo()
+ * keep the source key order. Use loadAll() before adding a lazy object into a
+ * plain JSONObject or JSONArray.
+ *
+ * Not thread safe, even for reads only: a read parses the value and stores it.
+ * Call loadAll() before sharing an instance between threads.
+ *
+ * Usage:
+ *  LazyJsonHelper json = new LazyJsonHelper(response);
+ *  String token = json.optString("token");
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class LazyJsonHelper extends JsonHelper {
+
+    private static final long NOT_INT = Long.MIN_VALUE;
+
+    private String source;
+
+    /**
+     * Source keys in order, with value span [start, end) (start -1 when removed)
+     */
+    private String[] names = new String[8];
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * Key position in arrays, null once every value was parsed
+     */
+    private HashMap<String, Integer> positions = new HashMap<>();
+
+    public LazyJsonHelper(@NonNull String stringForm) throws JSONException {
+        this(stringForm, 0, stringForm.length());
+    }
+
+    private LazyJsonHelper(String source, int from, int to) throws JSONException {
+        super();
+        this.source = source;
+
+        try {
+            index(from, to);
+        } catch (JSONException e) {
+            /* lenient syntax or malformed: parse like JsonHelper(String), which throws for the latter */
+            clearIndex();
+            JSONObject parsed = new JSONObject(source.substring(from, to));
+
+            Iterator<String> keys = parsed.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                putValue(key, parsed.opt(key));
+            }
+        }
+    }
+
+    @Override
+    public Object opt(String name) {
+        try {
+            return load(name);
+        } catch (JSONException e) {
+            Log.e(getClass().getSimpleName(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Object get(@NonNull String name) throws JSONException {
+        Object value = load(name);
+
+        if (value == null) {
+            throw new JSONException("No value for " + name);
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean has(String name) {
+        return (positions != null && positions.containsKey(name)) || super.has(name);
+    }
+
+    @Override
+    public int length() {
+        if (positions == null) {
+            return super.length();
+        }
+
+        int length = positions.size();
+
+        Iterator<String> keys = super.keys();
+        while (keys.hasNext()) {
+            if (!positions.containsKey(keys.next())) {
+                length++;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Keys in source order, values stay unparsed until read
+     */
+    @NonNull
+    @Override
+    public Iterator<String> keys() {
+        final Iterator<String> names = keyList().iterator();
+
+        return new Iterator<String>() {
+            private String current;
+
+            @Override
+            public boolean hasNext() {
+                return names.hasNext();
+            }
+
+            @Override
+            public String next() {
+                current = names.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+
+                LazyJsonHelper.this.remove(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public JSONArray names() {
+        ArrayList<String> keys = keyList();
+        return keys.isEmpty() ? null : new JSONArray(keys);
+    }
+
+    /**
+     * Values not read yet are dropped without being parsed, null is returned for them
+     * (read the value first when it is needed)
+     */
+    @Override
+    public Object remove(String name) {
+        if (positions != null) {
+            Integer position = positions.remove(name);
+
+            if (position != null) {
+                starts[position] = -1;
+            }
+        }
+
+        return super.remove(name);
+    }
+
+    @Override
+    public JSONObject accumulate(String name, Object value) throws JSONException {
+        load(name);
+        return super.accumulate(name, value);
+    }
+
+    /**
+     * Pending numeric arrays are parsed straight into primitives
+     */
+    @Override
+    public double[] getDoubleArray(@NonNull String name) {
+        loadNumeric(name);
+        return super.getDoubleArray(name);
+    }
+
+    @Override
+    public int[] getIntArray(@NonNull String name) {
+        loadNumeric(name);
+        return super.getIntArray(name);
+    }
+
+    @NonNull
+    @Override
+    public JsonHelper reset() {
+        clearIndex();
+        return super.reset();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        loadAll();
+        return super.toString();
+    }
+
+    @Override
+    public String toString(int indentSpaces) throws JSONException {
+        loadAll();
+        return super.toString(indentSpaces);
+    }
+
+    /**
+     * Check if every value was parsed
+     */
+    public boolean isLoaded() {
+        return positions == null;
+    }
+
+    /**
+     * Get value, parsing it from source on first read
+     */
+    private Object load(String name) throws JSONException {
+        Object value = super.opt(name);
+
+        if (value != null || positions == null) {
+            return value;
+        }
+
+        Integer position = positions.get(name);
+        if (position == null) {
+            return null;
+        }
+
+        value = parse(starts[position], ends[position]);
+        putValue(name, value);
+
+        return value;
+    }
+
+    /**
+     * Parse pending array of numbers without boxing (other values are left to load())
+     */
+    private void loadNumeric(String name) {
+        if (positions == null || super.opt(name) != null) {
+            return;
+        }
+
+        Integer position = positions.get(name);
+        if (position == null || source.charAt(starts[position]) != '[') {
+            return;
+        }
+
+        NumericArray array = parseNumbers(starts[position] + 1, ends[position] - 1);
+
+        if (array != null) {
+            try {
+                putValue(name, array);
+            } catch (JSONException e) {
+                Log.e(getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Numbers between brackets in [from, to), int[] when all are ints (null if any is not a number)
+     */
+    private NumericArray parseNumbers(int from, int to) {
+        int length = 0;
+        boolean empty = true;
+
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+
+            if (c == ',') {
+                length++;
+            } else if (c == '"' || c == '[' || c == '{' || c == 'n' || c == 't' || c == 'f') {
+                return null;
+            } else if (c > ' ') {
+                empty = false;
+            }
+        }
+
+        double[] values = new double[empty ? 0 : length + 1];
+        boolean integers = true;
+        int i = from;
+
+        try {
+            for (int index = 0; index < values.length; index++) {
+                int start = skipWhitespace(i, to);
+                int end = start;
+
+                while (end < to && source.charAt(end) > ' ' && source.charAt(end) != ',') {
+                    end++;
+                }
+
+                long integer = parseInt(start, end);
+
+                if (integer != NOT_INT) {
+                    values[index] = integer;
+                } else if (isDecimal(start, end)) {
+                    values[index] = Double.parseDouble(source.substring(start, end));
+                    integers = false;
+                } else {
+                    return null;
+                }
+
+                i = skipWhitespace(end, to);
+
+                if (i < to && source.charAt(i++) != ',') {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (!NumericArray.isValid(values)) {
+            return null;
+        }
+
+        if (!integers) {
+            return new NumericArray(values);
+        }
+
+        int[] ints = new int[values.length];
+        for (int index = 0; index < ints.length; index++) {
+            ints[index] = (int) values[index];
+        }
+
+        return new NumericArray(ints);
+    }
+
+    /**
+     * Plain integer literal in int range, NOT_INT otherwise
+     */
+    private long parseInt(int start, int end) {
+        boolean negative = start < end && source.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+
+        /* JSONTokener reads leading zeros as octal, leave them to it */
+        if (i == end || end - i > 10 || (source.charAt(i) == '0' && end - i > 1)) {
+            return NOT_INT;
+        }
+
+        long value = 0;
+
+        for (; i < end; i++) {
+            char c = source.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return NOT_INT;
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        value = negative ? -value : value;
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : NOT_INT;
+    }
+
+    /**
+     * Decimal literal with digits, fraction and exponent only (no hex, octal or type suffix)
+     */
+    private boolean isDecimal(int start, int end) {
+        int i = start < end && source.charAt(start) == '-' ? start + 1 : start;
+
+        if (i == end || (source.charAt(i) == '0' && i + 1 < end && source.charAt(i + 1) != '.'
+                && source.charAt(i + 1) != 'e' && source.charAt(i + 1) != 'E')) {
+            return false;
+        }
+
+        int digits = end - i;
+        boolean integral = true;
+
+        for (; i < end; i++) {
+            char c = source.charAt(i);
+
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+            } else if ((c < '0' || c > '9') && c != '+' && c != '-') {
+                return false;
+            }
+        }
+
+        /* long values past double precision stay with JSONTokener */
+        char last = source.charAt(end - 1);
+        return last >= '0' && last <= '9' && (!integral || digits <= 15);
+    }
+
+    /**
+     * Parse every pending value (nested objects too) and rebuild the map in source order
+     *
+     * Needed before adding this object into a plain JSONObject or JSONArray, which
+     * read their children without going through opt() (JsonHelper.put does it).
+     */
+    @NonNull
+    public LazyJsonHelper loadAll() {
+        if (positions == null) {
+            return this;
+        }
+
+        LinkedHashMap<String, Object> ordered = new LinkedHashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            if (starts[i] >= 0) {
+                try {
+                    ordered.put(names[i], load(names[i]));
+                } catch (JSONException e) {
+                    Log.e(getClass().getSimpleName(), e.getMessage(), e);
+                }
+            }
+        }
+
+        Iterator<String> keys = super.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+
+            if (!ordered.containsKey(key)) {
+                ordered.put(key, super.opt(key));
+            }
+        }
+
+        clearIndex();
+        super.reset();
+
+        for (Map.Entry<String, Object> entry : ordered.entrySet()) {
+            Object value = entry.getValue();
+
+            if (value instanceof LazyJsonHelper) {
+                ((LazyJsonHelper) value).loadAll();
+            }
+
+            try {
+                putValue(entry.getKey(), value);
+            } catch (JSONException e) {
+                Log.e(getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+
+        return this;
+    }
+
+    private ArrayList<String> keyList() {
+        ArrayList<String> keys = new ArrayList<>();
+
+        if (positions != null) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] >= 0) {
+                    keys.add(names[i]);
+                }
+            }
+        }
+
+        Iterator<String> iterator = super.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+
+            if (positions == null || !positions.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    private void clearIndex() {
+        source = null;
+        names = null;
+        starts = null;
+        ends = null;
+        positions = null;
+        count = 0;
+    }
+
+    private Object parse(int start, int end) throws JSONException {
+        if (source.charAt(start) == '{') {
+            return new LazyJsonHelper(source, start, end);
+        }
+
+        return new JSONTokener(source.substring(start, end)).nextValue();
+    }
+
+    /**
+     * Index top-level keys of the object in [from, to)
+     */
+    private void index(int from, int to) throws JSONException {
+        int i = skipWhitespace(from, to);
+
+        if (i >= to || source.charAt(i) != '{') {
+            throw syntaxError("A JSONObject text must begin with '{'", i);
+        }
+
+        i = skipWhitespace(i + 1, to);
+
+        if (i < to && source.charAt(i) == '}') {
+            return;
+        }
+
+        while (true) {
+            if (i >= to || source.charAt(i) != '"') {
+                throw syntaxError("Expected name", i);
+            }
+
+            int nameEnd = skipString(i, to);
+            String name = decodeName(i, nameEnd);
+
+            i = skipWhitespace(nameEnd, to);
+            if (i >= to || source.charAt(i) != ':') {
+                throw syntaxError("Expected ':' after " + name, i);
+            }
+
+            int valueStart = skipWhitespace(i + 1, to);
+            int valueEnd = skipValue(valueStart, to);
+            add(name, valueStart, valueEnd);
+
+            i = skipWhitespace(valueEnd, to);
+            char c = i < to ? source.charAt(i) : 0;
+
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw syntaxError("Unterminated object", i);
+            }
+
+            i = skipWhitespace(i + 1, to);
+        }
+    }
+
+    private void add(String name, int start, int end) {
+        Integer position = positions.get(name);
+
+        /* duplicated keys keep first position and last value, like JSONObject */
+        if (position != null) {
+            starts[position] = start;
+            ends[position] = end;
+            return;
+        }
+
+        if (count == names.length) {
+            int capacity = count * 2;
+            String[] newNames = new String[capacity];
+            int[] newStarts = new int[capacity];
+            int[] newEnds = new int[capacity];
+
+            System.arraycopy(names, 0, newNames, 0, count);
+            System.arraycopy(starts, 0, newStarts, 0, count);
+            System.arraycopy(ends, 0, newEnds, 0, count);
+
+            names = newNames;
+            starts = newStarts;
+            ends = newEnds;
+        }
+
+        names[count] = name;
+        starts[count] = start;
+        ends[count] = end;
+        positions.put(name, count++);
+    }
+
+    private String decodeName(int start, int end) throws JSONException {
+        for (int i = start + 1; i < end - 1; i++) {
+            if (source.charAt(i) == '\\') {
+                return (String) new JSONTokener(source.substring(start, end)).nextValue();
+            }
+        }
+
+        return source.substring(start + 1, end - 1);
+    }
+
+    /**
+     * End of value starting at i
+     */
+    private int skipValue(int i, int to) throws JSONException {
+        if (i >= to) {
+            throw syntaxError("Expected value", i);
+        }
+
+        char c = source.charAt(i);
+
+        if (c == '"') {
+            return skipString(i, to);
+        }
+
+        if (c == '{' || c == '[') {
+            int depth = 0;
+
+            for (int j = i; j < to; j++) {
+                char current = source.charAt(j);
+
+                if (current == '"') {
+                    j = skipString(j, to) - 1;
+                } else if (current == '{' || current == '[') {
+                    depth++;
+                } else if ((current == '}' || current == ']') && --depth == 0) {
+                    return j + 1;
+                }
+            }
+
+            throw syntaxError("Unterminated value", i);
+        }
+
+        int j = i;
+        while (j < to && ",}] \t\r\n".indexOf(source.charAt(j)) < 0) {
+            j++;
+        }
+
+        if (j == i) {
+            throw syntaxError("Expected value", i);
+        }
+
+        return j;
+    }
+
+    /**
+     * End of string starting with quote at i (after closing quote)
+     */
+    private int skipString(int i, int to) throws JSONException {
+        for (int j = i + 1; j < to; j++) {
+            char c = source.charAt(j);
+
+            if (c == '\\') {
+                j++;
+            } else if (c == '"') {
+                return j + 1;
+            }
+        }
+
+        throw syntaxError("Unterminated string", i);
+    }
+
+    private int skipWhitespace(int i, int to) {
+        while (i < to && source.charAt(i) <= ' ') {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static JSONException syntaxError(String message, int position) {
+        return new JSONException(message + " at character " + position);
+    }
+}
@@ -0,0 +1,55 @@
+package you.thiago.commonhelpers;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Capitalized month names per locale, built once on first use
+ */
+final class MonthNames {
+
+    private static final ConcurrentHashMap<Locale, MonthNames> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Indexed by Calendar.JANUARY..Calendar.DECEMBER
+     */
+    final String[] full = new String[12];
+    final String[] abbreviated = new String[12];
+
+    private MonthNames(Locale locale) {
+        /* same formatters used before the tables, so names keep their grammatical form */
+        SimpleDateFormat fullFormatter = new SimpleDateFormat("MMMM", locale);
+        SimpleDateFormat shortFormatter = new SimpleDateFormat("MMM", locale);
+
+        Calendar calendar = Calendar.getInstance(locale);
+        calendar.clear();
+
+        for (int i = 0; i < 12; i++) {
+            calendar.set(2000, i, 15);
+
+            full[i] = capitalize(fullFormatter.format(calendar.getTime()), locale);
+            abbreviated[i] = capitalize(shortFormatter.format(calendar.getTime()), locale);
+        }
+    }
+
+    static MonthNames of(Locale locale) {
+        MonthNames names = TABLES.get(locale);
+
+        if (names == null) {
+            names = new MonthNames(locale);
+            TABLES.put(locale, names);
+        }
+
+        return names;
+    }
+
+    private static String capitalize(String month, Locale locale) {
+        if (month == null || month.isEmpty()) {
+            return "";
+        }
+
+        return month.substring(0, 1).toUpperCase(locale) + month.substring(1);
+    }
+}
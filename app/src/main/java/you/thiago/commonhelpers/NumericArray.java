@@ -0,0 +1,123 @@
+package you.thiago.commonhelpers;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Numeric json array kept as a primitive array until it is written
+ *
+ * Stored by JsonHelper.putArray(), written by JsonHelper.toString(), writeTo(),
+ * JsonStreamWriter and the binary codec without boxing. The array is not copied.
+ */
+final class NumericArray {
+
+    final double[] doubles;
+    final int[] ints;
+
+    NumericArray(@NonNull double[] doubles) {
+        this.doubles = doubles;
+        this.ints = null;
+    }
+
+    NumericArray(@NonNull int[] ints) {
+        this.doubles = null;
+        this.ints = ints;
+    }
+
+    int length() {
+        return ints != null ? ints.length : doubles.length;
+    }
+
+    double[] toDoubleArray() {
+        if (doubles != null) {
+            return doubles;
+        }
+
+        double[] values = new double[ints.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ints[i];
+        }
+
+        return values;
+    }
+
+    int[] toIntArray() {
+        if (ints != null) {
+            return ints;
+        }
+
+        int[] values = new int[doubles.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (int) doubles[i];
+        }
+
+        return values;
+    }
+
+    /**
+     * Boxed copy for JSONArray based code
+     */
+    @NonNull
+    JSONArray toJSONArray() {
+        JSONArray array = new JSONArray();
+
+        try {
+            for (int i = 0, count = length(); i < count; i++) {
+                if (ints != null) {
+                    array.put(ints[i]);
+                } else {
+                    array.put(doubles[i]);
+                }
+            }
+        } catch (JSONException e) {
+            /* values were checked by putArray */
+            throw new IllegalStateException(e);
+        }
+
+        return array;
+    }
+
+    /**
+     * Check that every value is allowed by JSONObject (no NaN or infinities)
+     */
+    static boolean isValid(double[] values) {
+        for (double value : values) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same text as the boxed JSONArray
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length() * 8 + 2).append('[');
+
+        for (int i = 0, count = length(); i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            if (ints != null) {
+                builder.append(ints[i]);
+            } else if (doubles[i] == (long) doubles[i] && !isNegativeZero(doubles[i])) {
+                builder.append((long) doubles[i]);
+            } else {
+                builder.append(isNegativeZero(doubles[i]) ? "-0" : Double.toString(doubles[i]));
+            }
+        }
+
+        return builder.append(']').toString();
+    }
+
+    private static boolean isNegativeZero(double value) {
+        return value == 0 && Double.doubleToRawLongBits(value) != 0;
+    }
+}
@@ -0,0 +1,164 @@
+package you.thiago.commonhelpers;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shared worker pool used by the bulk helpers to split large inputs in chunks
+ *
+ * Workers are daemon threads, one per core. Chunks started from a worker run
+ * on that worker, so nested bulk calls never wait on their own pool. When a
+ * chunk throws, chunks not started yet are skipped and the call returns (with
+ * the first exception) only after the running ones are done.
+ */
+final class ParallelTasks {
+
+    /**
+     * Work of a single chunk [from, to)
+     */
+    interface Chunk {
+        void run(int from, int to);
+    }
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadLocal<Boolean> IS_WORKER = new ThreadLocal<>();
+
+    private static volatile ExecutorService executor;
+
+    private ParallelTasks() {}
+
+    /**
+     * Run chunk over [0, size), in parallel when size is worth it
+     */
+    static void forEachChunk(int size, int minChunkSize, Chunk chunk) {
+        int chunkCount = Math.min(CPU_COUNT * 4, (size + minChunkSize - 1) / minChunkSize);
+
+        if (chunkCount <= 1 || CPU_COUNT == 1 || IS_WORKER.get() != null) {
+            chunk.run(0, size);
+            return;
+        }
+
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        ArrayList<Future<?>> futures = new ArrayList<>(chunkCount);
+        Batch batch = new Batch();
+
+        /* first chunk runs on the caller thread */
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            futures.add(getExecutor().submit(new ChunkTask(batch, chunk, from, Math.min(size, from + chunkSize))));
+        }
+
+        Throwable failure = null;
+
+        try {
+            chunk.run(0, chunkSize);
+        } catch (RuntimeException | Error e) {
+            batch.failed = true;
+            failure = e;
+        }
+
+        /* wait every chunk, even after a failure, so none keeps running once this returns */
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                batch.failed = true;
+
+                for (Future<?> pending : futures) {
+                    pending.cancel(true);
+                }
+
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Chunks that can run at the same time from this thread (1 on a worker)
+     */
+    static int getParallelism() {
+        return IS_WORKER.get() != null ? 1 : CPU_COUNT;
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (ParallelTasks.class) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(CPU_COUNT, new WorkerFactory());
+                }
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * Chunks of a single call, not started ones are skipped once any fails
+     */
+    private static class Batch {
+        private volatile boolean failed;
+    }
+
+    private static class ChunkTask implements Runnable {
+        private final Batch batch;
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(Batch batch, Chunk chunk, int from, int to) {
+            this.batch = batch;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            if (batch.failed) {
+                return;
+            }
+
+            try {
+                chunk.run(from, to);
+            } catch (RuntimeException | Error e) {
+                batch.failed = true;
+                throw e;
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private int count = 0;
+
+        @Override
+        public synchronized Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    IS_WORKER.set(Boolean.TRUE);
+                    runnable.run();
+                }
+            }, "common-helpers-worker-" + (++count));
+
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
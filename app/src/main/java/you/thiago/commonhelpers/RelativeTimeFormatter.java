@@ -0,0 +1,127 @@
+package you.thiago.commonhelpers;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Relative time labels ("5 minutes ago", "yesterday") from epoch millis
+ *
+ * Every label of the last week is rendered once per locale from the
+ * string resources, so formatting a row is a table lookup. Dates older than
+ * a week fall back to DateHelper.DATE.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class RelativeTimeFormatter {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static final int DAYS_IN_WEEK = 7;
+
+    /**
+     * Formatter of the last used locale
+     */
+    private static volatile RelativeTimeFormatter instance;
+
+    private final Locale locale;
+
+    private final String now;
+    private final String yesterday;
+    private final String[] minutes = new String[60];
+    private final String[] hours = new String[24];
+    private final String[] days = new String[DAYS_IN_WEEK];
+
+    private RelativeTimeFormatter(Resources resources) {
+        locale = DateHelper.getLocale(resources.getConfiguration());
+
+        now = resources.getString(R.string.relative_time_now);
+        yesterday = resources.getString(R.string.relative_time_yesterday);
+
+        for (int i = 1; i < minutes.length; i++) {
+            minutes[i] = resources.getQuantityString(R.plurals.relative_time_minutes, i, i);
+        }
+
+        for (int i = 1; i < hours.length; i++) {
+            hours[i] = resources.getQuantityString(R.plurals.relative_time_hours, i, i);
+        }
+
+        for (int i = 2; i < days.length; i++) {
+            days[i] = resources.getQuantityString(R.plurals.relative_time_days, i, i);
+        }
+    }
+
+    /**
+     * Get formatter for current locale (labels are rebuilt only when locale changes)
+     */
+    public static RelativeTimeFormatter getInstance(Context context) {
+        Resources resources = context.getResources();
+        RelativeTimeFormatter formatter = instance;
+
+        if (formatter == null || !formatter.locale.equals(DateHelper.getLocale(resources.getConfiguration()))) {
+            formatter = new RelativeTimeFormatter(resources);
+            instance = formatter;
+        }
+
+        return formatter;
+    }
+
+    /**
+     * Label of a moment relative to now
+     */
+    public String format(long epochMillis) {
+        return format(epochMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Label of a moment relative to a given now (future moments show as now)
+     */
+    public String format(long epochMillis, long nowMillis) {
+        return format(epochMillis, nowMillis, EpochDays.fromMillis(nowMillis));
+    }
+
+    /**
+     * Refresh labels of a whole list against a single now
+     */
+    public void formatAll(long[] epochMillis, String[] out) {
+        formatAll(epochMillis, System.currentTimeMillis(), out);
+    }
+
+    public void formatAll(long[] epochMillis, long nowMillis, String[] out) {
+        long today = EpochDays.fromMillis(nowMillis);
+
+        for (int i = 0; i < epochMillis.length; i++) {
+            out[i] = format(epochMillis[i], nowMillis, today);
+        }
+    }
+
+    private String format(long epochMillis, long nowMillis, long today) {
+        long elapsed = nowMillis - epochMillis;
+
+        if (elapsed < MINUTE) {
+            return now;
+        }
+
+        if (elapsed < HOUR) {
+            return minutes[(int) (elapsed / MINUTE)];
+        }
+
+        if (elapsed < 24 * HOUR) {
+            return hours[(int) (elapsed / HOUR)];
+        }
+
+        long dayDiff = today - EpochDays.fromMillis(epochMillis);
+
+        if (dayDiff <= 1) {
+            return yesterday;
+        }
+
+        if (dayDiff < DAYS_IN_WEEK) {
+            return days[(int) dayDiff];
+        }
+
+        return DateHelper.dateToString(new Date(epochMillis), DateHelper.DATE);
+    }
+}
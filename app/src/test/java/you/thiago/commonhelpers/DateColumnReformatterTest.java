@@ -0,0 +1,44 @@
+package you.thiago.commonhelpers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class DateColumnReformatterTest {
+
+    private static final String PATTERN = "dd/MM/yyyy";
+
+    private static String reformat(DateColumnReformatter reformatter, String in, long expectedCount) throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals(expectedCount, reformatter.reformat(new StringReader(in), out));
+        return out.toString();
+    }
+
+    @Test
+    public void rewriteDateColumn() throws IOException {
+        DateColumnReformatter reformatter = new DateColumnReformatter(',', new int[]{1}, PATTERN);
+
+        assertEquals("a,05/01/2020\nb,x\n", reformat(reformatter, "a,2020-01-05\nb,x\n", 1));
+        assertEquals("\"ab,c\",05/01/2020", reformat(reformatter, "\"ab,c\",2020-01-05", 1));
+    }
+
+    @Test
+    public void quotedDateCell() throws IOException {
+        DateColumnReformatter reformatter = new DateColumnReformatter(',', new int[]{0}, PATTERN);
+
+        assertEquals("\"05/01/2020\",x", reformat(reformatter, "\"2020-01-05\",x", 1));
+        assertEquals("\"2020\"\"01,05\",x", reformat(reformatter, "\"2020\"\"01,05\",x", 0));
+    }
+
+    @Test
+    public void escapedQuoteBeforeDelimiter() throws IOException {
+        DateColumnReformatter reformatter = new DateColumnReformatter(',', new int[]{1}, PATTERN);
+
+        assertEquals("\"a\"\"b,c\",05/01/2020", reformat(reformatter, "\"a\"\"b,c\",2020-01-05", 1));
+        assertEquals("\"a\"\"\"\"b,c\"\"\",05/01/2020\n", reformat(reformatter, "\"a\"\"\"\"b,c\"\"\",2020-01-05\n", 1));
+    }
+}
@@ -0,0 +1,135 @@
+package you.thiago.commonhelpers;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class DurationFormatterTest {
+
+    @Test
+    public void formatMinutesSeconds() {
+        DurationFormatter formatter = new DurationFormatter();
+
+        assertEquals("00:00", formatter.toString());
+        assertEquals("00:05", formatter.format(5999).toString());
+        assertEquals("01:05", formatter.format(65000).toString());
+        assertEquals("75:03", formatter.format(75 * 60000 + 3000).toString());
+        assertEquals("00:00", formatter.format(-1000).toString());
+    }
+
+    @Test
+    public void formatHoursMinutesSeconds() {
+        DurationFormatter formatter = new DurationFormatter(DurationFormatter.HOURS_MINUTES_SECONDS);
+
+        assertEquals("00:00:00", formatter.toString());
+        assertEquals("00:01:05", formatter.format(65000).toString());
+        assertEquals("123:04:05", formatter.format(((123 * 60 + 4) * 60 + 5) * 1000L).toString());
+    }
+
+    @Test
+    public void formatAuto() {
+        DurationFormatter formatter = new DurationFormatter(DurationFormatter.AUTO);
+
+        assertEquals("59:59", formatter.format(3599000).toString());
+        assertEquals("01:00:00", formatter.format(3600000).toString());
+    }
+
+    @Test
+    public void formatMaxValue() {
+        DurationFormatter formatter = new DurationFormatter(DurationFormatter.HOURS_MINUTES_SECONDS);
+        long seconds = Long.MAX_VALUE / 1000;
+
+        String expected = (seconds / 3600) + ":" + String.format("%02d:%02d", seconds / 60 % 60, seconds % 60);
+        assertEquals(expected, formatter.format(Long.MAX_VALUE).toString());
+    }
+
+    @Test
+    public void writeAtOffset() {
+        char[] buffer = new char[30];
+        buffer[0] = '[';
+
+        int length = DurationFormatter.write(65000, DurationFormatter.MINUTES_SECONDS, buffer, 1);
+
+        assertEquals(5, length);
+        assertEquals("[01:05", new String(buffer, 0, length + 1));
+    }
+
+    @Test
+    public void charSequence() {
+        DurationFormatter formatter = new DurationFormatter().format(65000);
+
+        assertEquals(5, formatter.length());
+        assertEquals('1', formatter.charAt(1));
+        assertEquals("05", formatter.subSequence(3, 5).toString());
+        assertEquals("", formatter.subSequence(5, 5).toString());
+    }
+
+    @Test
+    public void charAtOutOfBounds() {
+        DurationFormatter formatter = new DurationFormatter().format(65000);
+
+        try {
+            formatter.charAt(5);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+
+        try {
+            formatter.charAt(-1);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+    }
+
+    @Test
+    public void subSequenceOutOfBounds() {
+        DurationFormatter formatter = new DurationFormatter().format(65000);
+        int[][] ranges = {{-1, 2}, {0, 6}, {3, 2}, {6, 6}};
+
+        for (int[] range : ranges) {
+            try {
+                formatter.subSequence(range[0], range[1]);
+                fail("subSequence(" + range[0] + ", " + range[1] + ")");
+            } catch (IndexOutOfBoundsException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void formatDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().getId();
+        DurationFormatter formatter = new DurationFormatter(DurationFormatter.AUTO);
+        long length = 0;
+
+        /* warm up so the loop runs compiled */
+        for (int i = 0; i < 200000; i++) {
+            length += formatter.format(i * 997L).length();
+        }
+
+        /* what reading the counter allocates by itself */
+        long start = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - start;
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < 100000; i++) {
+            length += formatter.format(i * 1009L).length();
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals(0, allocated);
+        assertTrue(length > 0);
+    }
+}